@@ -1,5 +1,8 @@
 package Application;
 
+import Data.ConnectionPool;
+import Data.SchemaMigrator;
+import javax.swing.JOptionPane;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
@@ -20,7 +23,27 @@ public class AppMain
         catch (ClassNotFoundException | InstantiationException | IllegalAccessException | UnsupportedLookAndFeelException e) {
             //Default look and feel is 'Metal'
         }
+
+        // Bring the database up to date before anything reads from it. The rest of
+        // the application relies on the latest schema, so it does not start without it.
+        if (!SchemaMigrator.migrate()) {
+            JOptionPane.showMessageDialog(null, "The database could not be updated, so MPPMS cannot start.\nSee the log for details.", "Database Error", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+
+        // Import manifests dropped into the drop folder, if one has been set
+        DropFolderIngestService.getInstance().start();
         
+        // The views exit using System.exit(), so the service is stopped (and the
+        // database connections closed) as the JVM shuts down
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                DropFolderIngestService.getInstance().stop();
+                ConnectionPool.getInstance().shutdown();
+            }
+        }, "MPPMS-shutdown"));
+
         // Perform the initial action of the application (begin the flow)
         AppController controller = new AppController();
         controller.showLogin();
@@ -7,44 +7,154 @@ import Models.Project;
 import Models.Report;
 import Models.Task;
 import Models.User;
-import java.util.Observable;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  * This singleton class is the core of the Observer pattern used throughout this
- * application. Controllers may register themselves as Observers of this class
- * and implement an Update method to update the data shown in their respective views.
- * 
+ * application. Controllers may subscribe to this class as ModelChangeListeners
+ * to update the data shown in their respective views.
+ *
+ * A listener can subscribe to every change, to changes to one type of model (e.g.
+ * all Tasks) or to changes to a single model (e.g. Task 42), and is only told
+ * about the changes it subscribed to. A full refresh is sent to every listener.
+ *
+ * Notifications can be coalesced so that bursts of saves cost one refresh:
+ * <ul>
+ *   <li>Changes made between beginBatch() and the matching endBatch() are held
+ *   back and sent as one event when the outermost batch ends.</li>
+ *   <li>With a coalescing window (set using the mppms.refresh.coalesceMillis system
+ *   property or setCoalesceMillis()), changes are held back for up to that many
+ *   milliseconds after the first of them and then sent as one event on the Swing
+ *   event dispatch thread. The default window of 0 sends each change immediately.</li>
+ * </ul>
+ * Held back changes are merged, so a model which was changed many times appears
+ * once in the event. A full refresh replaces any changes held back.
+ *
+ * Listeners are always called on the Swing event dispatch thread.
+ *
  * @author Craig - TC B2c: Real time updates
- * @see java.util.Observable
+ * @see ModelChangeListener
+ * @see ModelChangeEvent
  */
-public class AppObservable extends Observable
+public class AppObservable
 {
     private static AppObservable instance = null;
     
-    public static AppObservable getInstance() {
+    private static final String COALESCE_MILLIS_PROPERTY = "mppms.refresh.coalesceMillis";
+
+    private final LinkedHashSet<ModelChangeListener> allListeners = new LinkedHashSet<>();
+    private final EnumMap<ModelChange.EntityType, LinkedHashSet<ModelChangeListener>> typeListeners =
+            new EnumMap<>(ModelChange.EntityType.class);
+    private final EnumMap<ModelChange.EntityType, HashMap<Integer, LinkedHashSet<ModelChangeListener>>> idListeners =
+            new EnumMap<>(ModelChange.EntityType.class);
+
+    private final LinkedHashMap<Long, ModelChange> pendingChanges = new LinkedHashMap<>();
+    private boolean pendingFullRefresh = false;
+    private int batchDepth = 0;
+    private int coalesceMillis = Integer.getInteger(COALESCE_MILLIS_PROPERTY, 0);
+    private Timer coalesceTimer = null;
+
+    public static synchronized AppObservable getInstance() {
         if (instance == null) {
             instance = new AppObservable();
         }
         return instance;
     }
-    
+
     private AppObservable() {
         // Private constructor - Singleton pattern.
     }
-    
+
+    /**
+     * Subscribes a listener to every change.
+     *
+     * @param listener The listener to notify.
+     */
+    public synchronized void subscribe(ModelChangeListener listener) {
+        allListeners.add(listener);
+    }
+
+    /**
+     * Subscribes a listener to changes to any model of the given type.
+     *
+     * @param listener The listener to notify.
+     * @param entityType The type of model.
+     */
+    public synchronized void subscribe(ModelChangeListener listener, ModelChange.EntityType entityType) {
+        LinkedHashSet<ModelChangeListener> listeners = typeListeners.get(entityType);
+        if (listeners == null) {
+            listeners = new LinkedHashSet<>();
+            typeListeners.put(entityType, listeners);
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Subscribes a listener to changes to a single model.
+     *
+     * @param listener The listener to notify.
+     * @param entityType The type of model.
+     * @param id The ID of the model.
+     */
+    public synchronized void subscribe(ModelChangeListener listener, ModelChange.EntityType entityType, int id) {
+        HashMap<Integer, LinkedHashSet<ModelChangeListener>> listenersById = idListeners.get(entityType);
+        if (listenersById == null) {
+            listenersById = new HashMap<>();
+            idListeners.put(entityType, listenersById);
+        }
+        LinkedHashSet<ModelChangeListener> listeners = listenersById.get(id);
+        if (listeners == null) {
+            listeners = new LinkedHashSet<>();
+            listenersById.put(id, listeners);
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes every subscription held by a listener.
+     *
+     * @param listener The listener to remove.
+     */
+    public synchronized void unsubscribe(ModelChangeListener listener) {
+        allListeners.remove(listener);
+        for (LinkedHashSet<ModelChangeListener> listeners : typeListeners.values()) {
+            listeners.remove(listener);
+        }
+        for (HashMap<Integer, LinkedHashSet<ModelChangeListener>> listenersById : idListeners.values()) {
+            Iterator<LinkedHashSet<ModelChangeListener>> iterator = listenersById.values().iterator();
+            while (iterator.hasNext()) {
+                LinkedHashSet<ModelChangeListener> listeners = iterator.next();
+                listeners.remove(listener);
+                if (listeners.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
     /**
      * Clears all 'in-memory' data (which originates from the database) and then
      * notifies all observers (Controllers) to update their views.
-     * 
+     *
      * @author Craig - TC B2c: Real time updates
      */
     public void notifyObserversToRefresh() {
         /**
-         * 
-         * Each model has a static 'SetOfModels' which contains all constructed 
+         *
+         * Each model has a static 'SetOfModels' which contains all constructed
          * objects using database content. Here they are cleared and hence forced
-         * to query the database again the next time they are required. This is 
-         * necessary because this method is called after the database has been 
+         * to query the database again the next time they are required. This is
+         * necessary because this method is called after the database has been
          * modified in some way.
          */
         Asset.clearAndNullifyAll();
@@ -54,9 +164,193 @@ public class AppObservable extends Observable
         Report.clearAndNullifyAll();
         Task.clearAndNullifyAll();
         User.clearAndNullifyAll();
-        
-        // Indicate that a change has occurred and notify all observers.
-        setChanged();
-        notifyObservers();
+
+        synchronized (this) {
+            pendingChanges.clear();
+            pendingFullRefresh = true;
+        }
+        flushOrDefer();
+    }
+
+    /**
+     * Notifies the observers (Controllers) which subscribed to any of the changes
+     * which have been committed to the database. Unlike notifyObserversToRefresh(),
+     * the in-memory data is left alone: the saves which made the changes have
+     * already updated it.
+     *
+     * @param changes The committed changes.
+     * @see ModelChange
+     */
+    public void notifyObserversOfChanges(List<ModelChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (!pendingFullRefresh) {
+                for (ModelChange change : changes) {
+                    mergeChange(change);
+                }
+            }
+        }
+        flushOrDefer();
+    }
+    
+    /**
+     * Starts holding back notifications, e.g. while many models are saved one at a
+     * time. Batches nest; every call must be matched by a call to endBatch(),
+     * typically in a finally block.
+     */
+    public synchronized void beginBatch() {
+        batchDepth++;
+    }
+    
+    /**
+     * Ends a batch started by beginBatch(). Once the outermost batch has ended, all
+     * changes held back are sent to observers as a single event.
+     */
+    public void endBatch() {
+        synchronized (this) {
+            if (batchDepth == 0) {
+                throw new IllegalStateException("endBatch() called without beginBatch()");
+            }
+            batchDepth--;
+        }
+        flushOrDefer();
+    }
+    
+    public synchronized int getCoalesceMillis() {
+        return coalesceMillis;
+    }
+    
+    /**
+     * Sets how long changes are held back (and merged) before observers are notified.
+     * 
+     * @param coalesceMillis The window in milliseconds, or 0 to notify immediately.
+     */
+    public synchronized void setCoalesceMillis(int coalesceMillis) {
+        this.coalesceMillis = Math.max(0, coalesceMillis);
+        if (coalesceTimer != null) {
+            coalesceTimer.stop();
+            coalesceTimer = null;
+        }
+    }
+    
+    /**
+     * Adds a change to those held back, merging it with any change already held for
+     * the same model: a model which was created and then updated is reported as created.
+     */
+    private void mergeChange(ModelChange change) {
+        Long key = ((long)change.getEntityType().ordinal() << 32) | (change.getId() & 0xFFFFFFFFL);
+        ModelChange pending = pendingChanges.get(key);
+        if (pending == null || change.getKind() != ModelChange.Kind.Updated) {
+            pendingChanges.put(key, change);
+        }
+    }
+    
+    /**
+     * Sends the changes held back now, or leaves them for the end of the current
+     * batch or coalescing window.
+     */
+    private void flushOrDefer() {
+        synchronized (this) {
+            if (batchDepth > 0) {
+                return;
+            }
+            if (coalesceMillis > 0) {
+                if (coalesceTimer == null) {
+                    coalesceTimer = new Timer(coalesceMillis, new CoalesceTimerActionListener());
+                    coalesceTimer.setRepeats(false);
+                }
+                if (!coalesceTimer.isRunning()) {
+                    coalesceTimer.start();
+                }
+                return;
+            }
+        }
+        flush();
+    }
+    
+    /**
+     * Sends all changes held back to observers as a single event.
+     */
+    private void flush() {
+        ModelChangeEvent event;
+        synchronized (this) {
+            if (pendingFullRefresh) {
+                event = ModelChangeEvent.fullRefresh();
+            }
+            else if (!pendingChanges.isEmpty()) {
+                event = ModelChangeEvent.of(new ArrayList<>(pendingChanges.values()));
+            }
+            else {
+                return;
+            }
+            pendingChanges.clear();
+            pendingFullRefresh = false;
+        }
+        dispatch(event);
+    }
+
+    /**
+     * Calls the listeners for an event on the Swing event dispatch thread, as they
+     * update views. Saves made on the DataExecutor's thread end up here too.
+     */
+    private void dispatch(final ModelChangeEvent event) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch(event);
+                }
+            });
+            return;
+        }
+        // Listeners are called outside the lock as they may subscribe or unsubscribe
+        for (ModelChangeListener listener : getListenersFor(event)) {
+            listener.modelChanged(event);
+        }
+    }
+
+    private synchronized ArrayList<ModelChangeListener> getListenersFor(ModelChangeEvent event) {
+        LinkedHashSet<ModelChangeListener> listeners = new LinkedHashSet<>(allListeners);
+
+        if (event.isFullRefresh()) {
+            for (LinkedHashSet<ModelChangeListener> typed : typeListeners.values()) {
+                listeners.addAll(typed);
+            }
+            for (HashMap<Integer, LinkedHashSet<ModelChangeListener>> listenersById : idListeners.values()) {
+                for (LinkedHashSet<ModelChangeListener> byId : listenersById.values()) {
+                    listeners.addAll(byId);
+                }
+            }
+        }
+        else {
+            for (ModelChange change : event.getChanges()) {
+                if (typeListeners.containsKey(change.getEntityType())) {
+                    listeners.addAll(typeListeners.get(change.getEntityType()));
+                }
+                HashMap<Integer, LinkedHashSet<ModelChangeListener>> listenersById = idListeners.get(change.getEntityType());
+                if (listenersById != null && listenersById.containsKey(change.getId())) {
+                    listeners.addAll(listenersById.get(change.getId()));
+                }
+            }
+        }
+        return new ArrayList<>(listeners);
+    }
+
+    /**
+     * Sends the changes held back once the coalescing window has passed, unless a
+     * batch has been started in the meantime (its end will send them instead).
+     */
+    class CoalesceTimerActionListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            synchronized (AppObservable.this) {
+                if (batchDepth > 0) {
+                    return;
+                }
+            }
+            flush();
+        }
     }
-}
\ No newline at end of file
+}
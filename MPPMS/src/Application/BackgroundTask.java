@@ -0,0 +1,49 @@
+package Application;
+
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingWorker;
+
+/**
+ * A SwingWorker for database work. doInBackground() runs on the DataExecutor's
+ * thread, away from the Swing event dispatch thread, and its result is handed to
+ * succeeded() on the event dispatch thread. A task which has been cancelled (e.g.
+ * because a newer load has superseded it) never publishes its result.
+ *
+ * @param <T> The type of the result.
+ * @see DataExecutor
+ */
+public abstract class BackgroundTask<T> extends SwingWorker<T, Void> {
+
+    /**
+     * Called on the event dispatch thread with the result of doInBackground().
+     *
+     * @param result The result.
+     */
+    protected abstract void succeeded(T result);
+
+    /**
+     * Called on the event dispatch thread if doInBackground() threw an exception.
+     * Logs the exception by default.
+     *
+     * @param cause The exception.
+     */
+    protected void failed(Throwable cause) {
+        Logger.getLogger(getClass().getName()).log(Level.SEVERE, null, cause);
+    }
+
+    @Override
+    protected final void done() {
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            succeeded(get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            failed(ex.getCause());
+        }
+    }
+}
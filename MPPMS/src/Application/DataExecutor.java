@@ -0,0 +1,88 @@
+package Application;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This singleton class runs database loads and saves in the background so that
+ * the Swing event dispatch thread is never blocked by the database. Tasks run
+ * one at a time, in the order they were submitted, on a single thread: SQLite
+ * allows a single writer and the in-memory model caches are filled on demand, so
+ * running them one at a time keeps saves ordered and avoids loading the same
+ * data twice.
+ *
+ * Imports, which can take minutes, run on a separate import thread instead, so
+ * that the views' loads and saves are not queued behind them. An import commits
+ * a batch at a time, so the views' saves are interleaved with its batches.
+ *
+ * @see BackgroundTask
+ */
+public class DataExecutor {
+    private static DataExecutor instance = null;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new DataThreadFactory("MPPMS-data"));
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(new DataThreadFactory("MPPMS-import-writer"));
+
+    public static synchronized DataExecutor getInstance() {
+        if (instance == null) {
+            instance = new DataExecutor();
+        }
+        return instance;
+    }
+
+    private DataExecutor() {
+        // Private constructor - Singleton pattern.
+    }
+
+    /**
+     * Queues a task to run on the data thread.
+     *
+     * @param task The task to run.
+     */
+    public void execute(BackgroundTask<?> task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Queues a long-running import to run on the import thread. Imports run one at
+     * a time, in the order they were submitted.
+     *
+     * @param task The import to run.
+     */
+    public void executeImport(BackgroundTask<?> task) {
+        importExecutor.execute(task);
+    }
+
+    /**
+     * Queues a task which replaces an earlier one, e.g. a reload of a view which is
+     * already being loaded. The earlier task is cancelled: if it has not started it
+     * never runs, and if it is running its result is discarded.
+     *
+     * @param previous The task being replaced, or null.
+     * @param task The task to run.
+     * @return task, so that callers can keep it to supersede later.
+     */
+    public <T extends BackgroundTask<?>> T supersede(BackgroundTask<?> previous, T task) {
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    private static class DataThreadFactory implements ThreadFactory {
+        private final String name;
+
+        DataThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
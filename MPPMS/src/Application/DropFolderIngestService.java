@@ -0,0 +1,262 @@
+package Application;
+
+import Controllers.AssetImportPipeline;
+import Data.IngestJournal;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This singleton class imports the .asset manifests which are dropped into a folder,
+ * as they arrive, without anyone having to choose them in the Import Assets view.
+ * Each manifest is imported through an AssetImportPipeline, just as a chosen one
+ * would be, and recorded in the IngestJournal once it has been imported. When the
+ * service starts, any manifests already in the folder which are not in the journal
+ * (e.g. those which arrived while the application was not running, or whose import
+ * was interrupted) are imported first.
+ *
+ * A manifest is only imported once it has not changed for a while, so that one
+ * which is still being copied into the folder is not imported half-written.
+ *
+ * The service is off unless the drop folder is set using the mppms.ingest.folder
+ * system property. Other settings:
+ * <ul>
+ *   <li>mppms.ingest.createTasks - true to create an Inbound QA Task for each
+ *   imported Asset (default false).</li>
+ *   <li>mppms.ingest.settleMillis - how long a manifest must be unchanged before
+ *   it is imported (default 2000).</li>
+ * </ul>
+ *
+ * @see AssetImportPipeline
+ * @see IngestJournal
+ */
+public class DropFolderIngestService {
+    private static final String FOLDER_PROPERTY = "mppms.ingest.folder";
+    private static final String MANIFEST_EXTENSION = ".asset";
+    private static final long STOP_TIMEOUT_MILLIS = 10000;
+
+    private static DropFolderIngestService instance = null;
+
+    private final boolean createTasks = Boolean.getBoolean("mppms.ingest.createTasks");
+    private final long settleMillis = Math.max(0, Long.getLong("mppms.ingest.settleMillis", 2000));
+    /**
+     * The manifests waiting to be imported, with the time each last changed.
+     */
+    private final LinkedHashMap<Path, Long> pending = new LinkedHashMap<Path, Long>();
+    private Thread thread = null;
+    private WatchService watcher = null;
+    private volatile AssetImportPipeline currentImport = null;
+
+    public static synchronized DropFolderIngestService getInstance() {
+        if (instance == null) {
+            instance = new DropFolderIngestService();
+        }
+        return instance;
+    }
+
+    private DropFolderIngestService() {
+        // Private constructor - Singleton pattern.
+    }
+
+    /**
+     * Starts watching the drop folder, if one has been set and the service is not
+     * already running.
+     *
+     * @return true if the service is running, else false.
+     */
+    public synchronized boolean start() {
+        if (thread != null) {
+            return true;
+        }
+        String folderName = System.getProperty(FOLDER_PROPERTY);
+        if (folderName == null || folderName.isEmpty()) {
+            return false;
+        }
+
+        final Path folder = new File(folderName).toPath();
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            // Registered before the folder is first listed, so nothing which arrives
+            // in between is missed
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException ex) {
+            Logger.getLogger(DropFolderIngestService.class.getName()).log(Level.SEVERE, "Cannot watch " + folder, ex);
+            closeWatcher();
+            return false;
+        }
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch(folder);
+            }
+        }, "MPPMS-ingest");
+        thread.setDaemon(true);
+        thread.start();
+        Logger.getLogger(DropFolderIngestService.class.getName()).log(Level.INFO, "Watching {0} for manifests", folder);
+        return true;
+    }
+
+    /**
+     * Stops watching the drop folder. An import which is running is cancelled; its
+     * manifest is not recorded in the journal, so it is imported again when the
+     * service next starts (its Assets which were already saved are then skipped as
+     * duplicates). Waits a while for the import to finish saving its current batch.
+     * Called when the application exits.
+     */
+    public void stop() {
+        Thread stopping;
+        synchronized (this) {
+            if (thread == null) {
+                return;
+            }
+            AssetImportPipeline running = currentImport;
+            if (running != null) {
+                running.cancel();
+            }
+            thread.interrupt();
+            closeWatcher();
+            stopping = thread;
+            thread = null;
+        }
+        
+        try {
+            stopping.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return (thread != null);
+    }
+
+    private synchronized void closeWatcher() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ex) {
+                Logger.getLogger(DropFolderIngestService.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            watcher = null;
+        }
+    }
+
+    /**
+     * Imports the manifests already in the folder, then those which arrive, until
+     * the service is stopped.
+     */
+    private void watch(Path folder) {
+        WatchService watchService;
+        synchronized (this) {
+            watchService = watcher;
+        }
+        if (watchService == null) {
+            return;
+        }
+        addManifestsIn(folder);
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(Math.max(settleMillis, 100), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // Some events were lost, so the folder is listed again
+                            addManifestsIn(folder);
+                        }
+                        else {
+                            addManifest(folder.resolve((Path)event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        Logger.getLogger(DropFolderIngestService.class.getName()).log(Level.SEVERE, "{0} can no longer be watched", folder);
+                        break;
+                    }
+                }
+                importSettledManifests();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // The service has been stopped
+        }
+    }
+
+    private void addManifestsIn(Path folder) {
+        try (DirectoryStream<Path> manifests = Files.newDirectoryStream(folder, "*" + MANIFEST_EXTENSION)) {
+            for (Path manifest : manifests) {
+                addManifest(manifest);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(DropFolderIngestService.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Adds a manifest to those waiting to be imported, or notes that it has changed
+     * if it is already waiting.
+     */
+    private void addManifest(Path path) {
+        if (path.getFileName().toString().toLowerCase().endsWith(MANIFEST_EXTENSION)) {
+            pending.remove(path);
+            pending.put(path, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Imports, in the order they arrived, the waiting manifests which have not
+     * changed for long enough.
+     */
+    private void importSettledManifests() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Long>> waiting = pending.entrySet().iterator();
+        while (waiting.hasNext() && !Thread.currentThread().isInterrupted()) {
+            Map.Entry<Path, Long> manifest = waiting.next();
+            if (now - manifest.getValue() >= settleMillis) {
+                waiting.remove();
+                File file = manifest.getKey().toFile();
+                if (file.isFile() && !IngestJournal.isIngested(file)) {
+                    ingest(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Imports a manifest and records it in the journal, unless the import is cancelled.
+     */
+    private void ingest(File manifest) {
+        // Read before the import, so that a change made during it causes another import
+        long fileSize = manifest.length();
+        long lastModified = manifest.lastModified();
+
+        AssetImportPipeline pipeline = new AssetImportPipeline(new File[] { manifest }, createTasks);
+        currentImport = pipeline;
+        try {
+            pipeline.run();
+        } finally {
+            currentImport = null;
+        }
+        if (pipeline.isCancelled()) {
+            return;
+        }
+
+        IngestJournal.record(manifest, fileSize, lastModified, pipeline.getAssetsImported(), pipeline.getAssetsDuplicated(), pipeline.getAssetsSkipped());
+        Logger.getLogger(DropFolderIngestService.class.getName()).log(Level.INFO,
+                "Ingested {0}: {1} assets imported, {2} duplicates, {3} skipped",
+                new Object[] { manifest, pipeline.getAssetsImported(), pipeline.getAssetsDuplicated(), pipeline.getAssetsSkipped() });
+    }
+}
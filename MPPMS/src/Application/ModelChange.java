@@ -0,0 +1,42 @@
+package Application;
+
+/**
+ * Describes a single change made to the database: which kind of model was changed,
+ * the ID of the changed row and whether it was created, updated or deleted.
+ * ModelChanges are collected while a save runs and are passed to observers of
+ * AppObservable once the save has been committed.
+ *
+ * @see AppObservable
+ */
+public class ModelChange {
+    public enum EntityType { Asset, Comment, Component, Project, Report, Task, User }
+
+    public enum Kind { Created, Updated, Deleted }
+
+    private final EntityType entityType;
+    private final int id;
+    private final Kind kind;
+
+    public ModelChange(EntityType entityType, int id, Kind kind) {
+        this.entityType = entityType;
+        this.id = id;
+        this.kind = kind;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + entityType + " " + id;
+    }
+}
@@ -0,0 +1,99 @@
+package Application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Passed to a ModelChangeListener when the database has been changed. An event
+ * either carries the ModelChanges which were committed, or is a full refresh
+ * telling listeners that all in-memory data has been cleared and must be reloaded
+ * (in which case it affects every type of model).
+ *
+ * @see ModelChangeListener
+ * @see AppObservable
+ */
+public class ModelChangeEvent {
+    private final List<ModelChange> changes;
+    private final boolean fullRefresh;
+
+    private ModelChangeEvent(List<ModelChange> changes, boolean fullRefresh) {
+        this.changes = changes;
+        this.fullRefresh = fullRefresh;
+    }
+
+    /**
+     * @param changes The changes which were committed.
+     * @return An event carrying the changes.
+     */
+    public static ModelChangeEvent of(List<ModelChange> changes) {
+        return new ModelChangeEvent(Collections.unmodifiableList(new ArrayList<>(changes)), false);
+    }
+
+    /**
+     * @return An event telling listeners to reload all of their data.
+     */
+    public static ModelChangeEvent fullRefresh() {
+        return new ModelChangeEvent(Collections.<ModelChange>emptyList(), true);
+    }
+
+    public boolean isFullRefresh() {
+        return fullRefresh;
+    }
+
+    public List<ModelChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @param entityType A type of model.
+     * @return true if any model of the given type may have changed.
+     */
+    public boolean affects(ModelChange.EntityType entityType) {
+        if (fullRefresh) {
+            return true;
+        }
+        for (ModelChange change : changes) {
+            if (change.getEntityType() == entityType) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param entityType A type of model.
+     * @param id The ID of a model of that type.
+     * @return true if the given model may have changed.
+     */
+    public boolean affects(ModelChange.EntityType entityType, int id) {
+        if (fullRefresh) {
+            return true;
+        }
+        for (ModelChange change : changes) {
+            if (change.getEntityType() == entityType && change.getId() == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param entityType A type of model.
+     * @return The IDs of the changed models of the given type (empty for a full refresh).
+     */
+    public List<Integer> getIds(ModelChange.EntityType entityType) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (ModelChange change : changes) {
+            if (change.getEntityType() == entityType && !ids.contains(change.getId())) {
+                ids.add(change.getId());
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return (fullRefresh ? "ModelChangeEvent (full refresh)" : "ModelChangeEvent " + changes);
+    }
+}
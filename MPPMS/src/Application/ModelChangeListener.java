@@ -0,0 +1,19 @@
+package Application;
+
+/**
+ * Implemented by anything (typically a Controller) which needs to know when the
+ * data it shows has been changed. Listeners subscribe to AppObservable for every
+ * change, for changes to one type of model or for changes to a single model.
+ *
+ * @see AppObservable
+ * @see ModelChangeEvent
+ */
+public interface ModelChangeListener {
+    /**
+     * Called after changes which this listener subscribed to have been committed,
+     * or after all in-memory data has been cleared (see ModelChangeEvent.isFullRefresh()).
+     *
+     * @param event The changes which were made.
+     */
+    void modelChanged(ModelChangeEvent event);
+}
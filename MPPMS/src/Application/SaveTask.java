@@ -0,0 +1,66 @@
+package Application;
+
+import Models.Model;
+
+/**
+ * A BackgroundTask which saves a Model on the DataExecutor's thread. succeeded()
+ * is passed true if the save was committed, or false if it failed (including when
+ * the save threw an exception).
+ *
+ * Models are shared by every view, so a user's edits are copied into the model by
+ * applyChanges() on the DataExecutor's thread, just before it is saved, rather than
+ * on the event dispatch thread while another save may be running.
+ *
+ * @see Model#save()
+ */
+public class SaveTask extends BackgroundTask<Boolean> {
+    private final Model model;
+
+    public SaveTask(Model model) {
+        this.model = model;
+    }
+
+    @Override
+    protected Boolean doInBackground() {
+        applyChanges();
+        boolean saved = false;
+        try {
+            saved = model.save();
+        } finally {
+            if (!saved) {
+                revertChanges();
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Called on the DataExecutor's thread just before the model is saved, to copy
+     * the user's edits into it. Does nothing by default.
+     */
+    protected void applyChanges() {
+    }
+
+    /**
+     * Called on the DataExecutor's thread if the save fails, to put the model back
+     * as it was before applyChanges(). Does nothing by default.
+     */
+    protected void revertChanges() {
+    }
+
+    /**
+     * Called on the event dispatch thread once the save has finished. Does nothing
+     * by default.
+     *
+     * @param saved true if the save was committed.
+     */
+    @Override
+    protected void succeeded(Boolean saved) {
+    }
+
+    @Override
+    protected void failed(Throwable cause) {
+        super.failed(cause);
+        succeeded(false);
+    }
+}
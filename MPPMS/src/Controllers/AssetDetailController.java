@@ -1,14 +1,18 @@
 package Controllers;
 
 import Application.AppObservable;
+import Application.BackgroundTask;
+import Application.DataExecutor;
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Application.ModelChangeListener;
+import Application.SaveTask;
 import Models.Asset;
 import Views.AssetDetailView;
 import java.awt.Cursor;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
-import java.util.Observable;
-import java.util.Observer;
 import javax.swing.JOptionPane;
 
 /**
@@ -17,11 +21,13 @@ import javax.swing.JOptionPane;
  * @see AssetDetailView
  * @see AppObservable
  */
-public class AssetDetailController implements Observer {
+public class AssetDetailController implements ModelChangeListener {
     private final AssetDetailView view;
     
     private Asset asset;
     private boolean isNew;
+    private boolean saving = false;
+    private boolean closed = false;
     
     /**
      * AssetDetailController constructor
@@ -57,7 +63,27 @@ public class AssetDetailController implements Observer {
          * Craig - TC B2c: Real time updates
          * Register this controller as an observer
          */
-        AppObservable.getInstance().addObserver(this);
+        if (!this.isNew) {
+            subscribeToChanges();
+        }
+    }
+    
+    /**
+     * Subscribes this controller to changes to its Asset, unless it has been closed.
+     */
+    private void subscribeToChanges() {
+        if (!closed) {
+            AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Asset, this.asset.getId());
+        }
+    }
+    
+    /**
+     * Stops this controller observing AppObservable, once IndexController no longer
+     * shows its view.
+     */
+    public void close() {
+        closed = true;
+        AppObservable.getInstance().unsubscribe(this);
     }
     
     /**
@@ -97,10 +123,28 @@ public class AssetDetailController implements Observer {
     }
     
     @Override
-    public void update(Observable o, Object o1) {
+    public void modelChanged(ModelChangeEvent event) {
         if (!this.isNew) {
-            this.asset = Asset.getAssetByID(this.asset.getId());        
-            refreshView();
+            final int id = this.asset.getId();
+            DataExecutor.getInstance().execute(new BackgroundTask<Asset>() {
+                @Override
+                protected Asset doInBackground() {
+                    Asset reloaded = Asset.getAssetByID(id);
+                    return reloaded;
+                }
+                
+                @Override
+                protected void succeeded(Asset reloaded) {
+                    if (reloaded == null) {
+                        // The Asset has been deleted
+                        close();
+                        view.setVisible(false);
+                        return;
+                    }
+                    asset = reloaded;
+                    refreshView();
+                }
+            });
         }
     }
     
@@ -121,27 +165,61 @@ public class AssetDetailController implements Observer {
     class SaveButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            if (validateUserInputs()) {
+            // Ignore clicks made before an earlier save has finished
+            if (!saving && validateUserInputs()) {
+                saving = true;
+                view.setSaving(true);
                 view.setCursor(new Cursor(Cursor.WAIT_CURSOR));
                 
-                Asset temp = asset;
-                
-                asset.setAssetType(view.getAssetType());
-                asset.setDescription(view.getDescription());
-                asset.setLength(view.getLength());
+                final Asset edited = asset;
+                final Asset.AssetType assetType = view.getAssetType();
+                final String description = view.getDescription();
+                final int length = view.getLength();
                 
-                if (asset.save()) {
-                    // Success
-                    view.setEditMode(false);
-                    isNew = false;
-                }
-                else {
-                    // Failure
-                    asset = temp;
-                    JOptionPane.showMessageDialog(view, "Error saving Asset", "'Asset' Error", JOptionPane.ERROR_MESSAGE);
-                }
+                DataExecutor.getInstance().execute(new SaveTask(edited) {
+                    // Kept so that the Asset can be put back as it was if the save fails
+                    private Asset.AssetType oldAssetType;
+                    private String oldDescription;
+                    private int oldLength;
+                    
+                    @Override
+                    protected void applyChanges() {
+                        oldAssetType = edited.getAssetType();
+                        oldDescription = edited.getDescription();
+                        oldLength = edited.getLength();
+                        
+                        edited.setAssetType(assetType);
+                        edited.setDescription(description);
+                        edited.setLength(length);
+                    }
+                    
+                    @Override
+                    protected void revertChanges() {
+                        edited.setAssetType(oldAssetType);
+                        edited.setDescription(oldDescription);
+                        edited.setLength(oldLength);
+                    }
+                    
+                    @Override
+                    protected void succeeded(Boolean saved) {
+                        if (saved) {
+                            // Success
+                            view.setEditMode(false);
+                            if (isNew) {
+                                subscribeToChanges();
+                            }
+                            isNew = false;
+                        }
+                        else {
+                            // Failure
+                            JOptionPane.showMessageDialog(view, "Error saving Asset", "'Asset' Error", JOptionPane.ERROR_MESSAGE);
+                        }
                 
-                view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                        saving = false;
+                        view.setSaving(false);
+                        view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                    }
+                });
             }
         }        
     }
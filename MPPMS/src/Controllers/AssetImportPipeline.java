@@ -0,0 +1,437 @@
+package Controllers;
+
+import Models.Asset;
+import Models.Model;
+import Models.SetOfAssets;
+import Models.SetOfTasks;
+import Models.Task;
+import Models.Task.TaskType;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Imports the Assets described by a set of .asset manifests in stages:
+ * <ol>
+ *   <li>The manifests are read in parallel by a pool of parser threads, one
+ *   manifest per thread at a time.</li>
+ *   <li>A pool of hasher threads checks each Asset's media file, setting it on the
+ *   Asset if it exists along with the hash of its content, and queues the Asset to
+ *   be saved. An Asset without a file is given a hash of the manifest line it was
+ *   read from instead.</li>
+ *   <li>The thread which called run() takes the queued Assets in batches, drops
+ *   any with the same hash as an Asset imported before (or earlier in the same
+ *   import), and saves the rest of each batch, with its Inbound QA Tasks if
+ *   they are wanted, in a single transaction using the models' batch inserts.</li>
+ * </ol>
+ * The hand-offs between the stages are bounded, so the earlier stages wait for the
+ * later ones when they get ahead rather than holding every Asset in memory.
+ *
+ * An import can be cancelled from any thread. The parsers stop at their next
+ * Asset and the writer stops once its current batch is saved, so the batches
+ * which were saved before are kept. If the manifests are imported again, the
+ * Assets in those batches are skipped as duplicates.
+ *
+ * @see AssetManifestReader
+ */
+public class AssetImportPipeline {
+    private static final int BATCH_SIZE = Integer.getInteger("mppms.import.batchSize", 500);
+    private static final int PARSER_THREADS = Integer.getInteger("mppms.import.parserThreads",
+            Runtime.getRuntime().availableProcessors());
+    private static final int HASHER_THREADS = Integer.getInteger("mppms.import.hasherThreads",
+            Runtime.getRuntime().availableProcessors());
+    /**
+     * Starts the hashes of manifest lines, so that they cannot match a file's hash.
+     */
+    private static final String RECORD_HASH_PREFIX = "record:";
+
+    private final File[] manifests;
+    private final boolean createTasks;
+    private final AssetManifestReader manifestReader = new AssetManifestReader();
+    private final ContentHasher contentHasher = new ContentHasher();
+    private final BlockingQueue<Asset> queue = new ArrayBlockingQueue<>(BATCH_SIZE * 2);
+    private final AtomicInteger assetsHashing = new AtomicInteger();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    /**
+     * The ID of an Asset for each content hash which has been looked up or imported.
+     * Only used by the writer.
+     */
+    private final HashMap<String, Integer> importedHashes = new HashMap<>();
+    private ExecutorService hashers;
+
+    private final long totalBytes;
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicInteger assetsImported = new AtomicInteger();
+    private final AtomicInteger assetsSkipped = new AtomicInteger();
+    private final AtomicInteger assetsDuplicated = new AtomicInteger();
+    private volatile long startTime = 0;
+    private volatile long endTime = 0;
+
+    /**
+     * @param manifests The .asset files to import.
+     * @param createTasks true to create an Inbound QA Task for each imported Asset.
+     */
+    public AssetImportPipeline(File[] manifests, boolean createTasks) {
+        this.manifests = manifests;
+        this.createTasks = createTasks;
+        long total = 0;
+        for (File manifest : manifests) {
+            total += manifest.length();
+        }
+        this.totalBytes = total;
+    }
+
+    /**
+     * Runs the import, returning once every Asset has been saved or the import has
+     * been cancelled. The Assets are saved on the calling thread.
+     */
+    public void run() {
+        startTime = System.nanoTime();
+        final CountDownLatch parsersFinished = new CountDownLatch(manifests.length);
+        ExecutorService parsers = Executors.newFixedThreadPool(Math.max(1, Math.min(PARSER_THREADS, manifests.length)),
+                new ImportThreadFactory());
+        // When the hashers fall behind, the parsers hash the Assets themselves, which
+        // holds them back until the hashers catch up
+        int hasherThreads = Math.max(1, HASHER_THREADS);
+        hashers = new ThreadPoolExecutor(hasherThreads, hasherThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(hasherThreads * 4), new ImportThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        for (final File manifest : manifests) {
+            parsers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        parse(manifest);
+                    } finally {
+                        parsersFinished.countDown();
+                    }
+                }
+            });
+        }
+        parsers.shutdown();
+
+        try {
+            SetOfAssets batch = new SetOfAssets();
+            while (!cancelled.get()) {
+                Asset asset = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (asset != null) {
+                    batch.add(asset);
+                    queue.drainTo(batch, BATCH_SIZE - batch.size());
+                }
+                // Save a full batch, or whatever is left once the parsers and hashers have finished
+                boolean finished = (asset == null && parsersFinished.getCount() == 0
+                        && assetsHashing.get() == 0 && queue.isEmpty());
+                if (batch.size() >= BATCH_SIZE || (finished && !batch.isEmpty())) {
+                    save(batch);
+                    batch.clear();
+                }
+                if (finished) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            cancel();
+            Thread.currentThread().interrupt();
+        } finally {
+            parsers.shutdownNow();
+            hashers.shutdownNow();
+            endTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Stops the import. Batches which have already been saved are kept.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * @return How far through the manifests the parsers are, from 0 to 100.
+     */
+    public int getPercentComplete() {
+        return (totalBytes == 0 ? 100 : (int)(bytesRead.get() * 100 / totalBytes));
+    }
+
+    public int getAssetsImported() {
+        return assetsImported.get();
+    }
+
+    /**
+     * @return The number of Assets which could not be read or saved.
+     */
+    public int getAssetsSkipped() {
+        return assetsSkipped.get();
+    }
+
+    /**
+     * @return The number of Assets which were not imported as their file has the same
+     * content as an Asset imported before, or (for those without a file) they were
+     * imported before from the same manifest line.
+     */
+    public int getAssetsDuplicated() {
+        return assetsDuplicated.get();
+    }
+
+    /**
+     * @return The number of Assets saved per second so far.
+     */
+    public double getAssetsPerSecond() {
+        long end = (endTime != 0 ? endTime : System.nanoTime());
+        double seconds = (end - startTime) / 1e9;
+        return (startTime == 0 || seconds <= 0 ? 0 : assetsImported.get() / seconds);
+    }
+
+    /**
+     * Reads a manifest and queues its Assets, waiting while the queue is full.
+     */
+    private void parse(File manifest) {
+        if (cancelled.get()) {
+            return;
+        }
+        try (InputStream in = new BufferedInputStream(new CountingInputStream(new FileInputStream(manifest)))) {
+            manifestReader.read(in, manifest.getPath(), new AssetManifestReader.Listener() {
+                @Override
+                public void assetRead(AssetManifestReader.Record record) {
+                    if (cancelled.get()) {
+                        throw new CancellationException();
+                    }
+                    hash(record);
+                }
+
+                @Override
+                public void recordFailed(String manifest, int lineNumber, String message) {
+                    assetsSkipped.incrementAndGet();
+                    Logger.getLogger(AssetImportPipeline.class.getName()).log(Level.WARNING,
+                            "{0}:{1}: {2}", new Object[] { manifest, lineNumber, message });
+                }
+            });
+        } catch (CancellationException ex) {
+            // The rest of the manifest is not wanted
+        } catch (IOException ex) {
+            assetsSkipped.incrementAndGet();
+            Logger.getLogger(AssetImportPipeline.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Has an Asset probed and queued by a hasher thread.
+     */
+    private void hash(final AssetManifestReader.Record record) {
+        assetsHashing.incrementAndGet();
+        try {
+            hashers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        enqueue(probe(record));
+                    } catch (CancellationException ex) {
+                        // The Asset is not wanted
+                    } finally {
+                        assetsHashing.decrementAndGet();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            assetsHashing.decrementAndGet();
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Sets the Asset's media file, and the hash of its content, if it exists.
+     * Otherwise the Asset is given the hash of the manifest line it was read from.
+     */
+    private Asset probe(AssetManifestReader.Record record) {
+        Asset asset = record.getAsset();
+        File file = new File(record.getFilePath());
+        if (file.isFile()) {
+            asset.setFile(file);
+            try {
+                asset.setContentHash(contentHasher.hash(file));
+            } catch (IOException ex) {
+                Logger.getLogger(AssetImportPipeline.class.getName()).log(Level.WARNING,
+                        "{0}:{1}: {2}", new Object[] { record.getManifest(), record.getLineNumber(), ex });
+            }
+        }
+        if (asset.getContentHash() == null) {
+            // Without a file to go by, the Asset is only matched with one imported
+            // from the same line of the same manifest (e.g. when a manifest whose
+            // import was interrupted is imported again)
+            asset.setContentHash(RECORD_HASH_PREFIX + contentHasher.hash(
+                    new File(record.getManifest()).getAbsolutePath() + "\n" + record.getLineNumber()
+                    + "\n" + asset.getAssetType() + "\n" + asset.getLength()
+                    + "\n" + asset.getDescription() + "\n" + record.getFilePath()));
+        }
+        return asset;
+    }
+
+    /**
+     * Queues an Asset to be saved, waiting while the queue is full.
+     */
+    private void enqueue(Asset asset) {
+        try {
+            while (!queue.offer(asset, 100, TimeUnit.MILLISECONDS)) {
+                if (cancelled.get()) {
+                    throw new CancellationException();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Gets the Assets in a batch which do not have the same hash as an Asset which
+     * has already been imported, or as one earlier in the batch.
+     */
+    private SetOfAssets withoutDuplicates(SetOfAssets batch) {
+        HashSet<String> unknownHashes = new HashSet<>();
+        for (Asset asset : batch) {
+            if (asset.getContentHash() != null && !importedHashes.containsKey(asset.getContentHash())) {
+                unknownHashes.add(asset.getContentHash());
+            }
+        }
+        if (!unknownHashes.isEmpty()) {
+            importedHashes.putAll(Asset.getAssetIdsByContentHash(unknownHashes));
+        }
+
+        SetOfAssets unique = new SetOfAssets();
+        HashSet<String> batchHashes = new HashSet<>();
+        for (Asset asset : batch) {
+            String hash = asset.getContentHash();
+            if (hash != null && (importedHashes.containsKey(hash) || !batchHashes.add(hash))) {
+                assetsDuplicated.incrementAndGet();
+            }
+            else {
+                unique.add(asset);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Saves a batch of Assets, less any duplicates, and their Inbound QA Tasks if
+     * wanted, in a single transaction. The Assets are inserted first, as the Tasks
+     * are titled with their new IDs. If anything fails, none of the batch is saved.
+     */
+    private void save(SetOfAssets assets) {
+        final SetOfAssets batch = withoutDuplicates(assets);
+        if (batch.isEmpty()) {
+            return;
+        }
+        boolean saved = Model.saveTogether(new Model.SaveGroup() {
+            @Override
+            public boolean save() {
+                if (!Asset.saveAll(batch)) {
+                    return false;
+                }
+                if (!createTasks) {
+                    return true;
+                }
+                SetOfTasks tasks = new SetOfTasks();
+                for (Asset asset : batch) {
+                    tasks.add(createTask(asset));
+                }
+                return Task.saveAll(tasks);
+            }
+        });
+        if (saved) {
+            assetsImported.addAndGet(batch.size());
+            for (Asset asset : batch) {
+                if (asset.getContentHash() != null) {
+                    importedHashes.put(asset.getContentHash(), asset.getId());
+                }
+            }
+        }
+        else {
+            assetsSkipped.addAndGet(batch.size());
+        }
+    }
+
+    /**
+     * Creates a new task of type Inbound QA for an imported asset
+     * @param asset The imported asset.
+     * @return The new, unsaved, Task.
+     */
+    private Task createTask(Asset asset) {
+        SetOfAssets assets = new SetOfAssets();
+        assets.add(asset);
+        Task newTask = new Task();
+        newTask.setTitle("Inbound QA Task for Asset " + asset.getId());
+        newTask.setTaskType(TaskType.Inbound_QA);
+        newTask.setAssets(assets);
+        return newTask;
+    }
+
+    /**
+     * Creates the import's threads, which do not stop the application exiting.
+     */
+    private static class ImportThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "MPPMS-import");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Counts the bytes of the manifests which have been read, for the progress.
+     */
+    private class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytesRead.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                bytesRead.addAndGet(count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytesRead.addAndGet(skipped);
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package Controllers;
+
+import Models.Asset;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the Assets described by a .asset manifest file:
+ * <pre>
+ * &lt;root&gt;
+ *   &lt;Asset&gt;
+ *     &lt;Type&gt;Audio&lt;/Type&gt;
+ *     &lt;Length&gt;333&lt;/Length&gt;
+ *     &lt;Description&gt;this is an audio asset&lt;/Description&gt;
+ *     &lt;FilePath&gt;groovy.wav&lt;/FilePath&gt;
+ *   &lt;/Asset&gt;
+ *   ...
+ * &lt;/root&gt;
+ * </pre>
+ * The manifest is streamed (using StAX) rather than loaded into a document, so each
+ * Asset is passed to the Listener as soon as it has been read and only one is held
+ * in memory at a time, however large the manifest. An Asset element which is
+ * incomplete, has an invalid value or has a field containing other elements is
+ * reported to the Listener and skipped; only XML which is not well-formed stops
+ * the rest of the manifest being read.
+ *
+ * A reader may be used by several threads at once.
+ */
+public class AssetManifestReader {
+    private static final String ASSET = "Asset";
+    private static final List<String> FIELDS = Arrays.asList("Type", "Length", "Description", "FilePath");
+
+    /**
+     * XMLInputFactory is not thread-safe, so each thread configures and keeps its own.
+     */
+    private static final ThreadLocal<XMLInputFactory> inputFactory = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+            // Manifests never need a DTD, and resolving one could read other files
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return factory;
+        }
+    };
+
+    /**
+     * Receives the Assets read from a manifest, in the order they appear in it.
+     */
+    public interface Listener {
+        /**
+         * Called for each valid Asset element.
+         *
+         * @param record The Asset which was read.
+         */
+        void assetRead(Record record);
+
+        /**
+         * Called for each Asset element which could not be read, or once if the
+         * manifest itself could not be read.
+         *
+         * @param manifest The name of the manifest.
+         * @param lineNumber The line the Asset element (or the error) is on.
+         * @param message What was wrong.
+         */
+        void recordFailed(String manifest, int lineNumber, String message);
+    }
+
+    /**
+     * An Asset read from a manifest, with the path of its media file as given.
+     * The Asset is new (it has not been saved) and has no file set.
+     */
+    public static class Record {
+        private final Asset asset;
+        private final String filePath;
+        private final String manifest;
+        private final int lineNumber;
+
+        private Record(Asset asset, String filePath, String manifest, int lineNumber) {
+            this.asset = asset;
+            this.filePath = filePath;
+            this.manifest = manifest;
+            this.lineNumber = lineNumber;
+        }
+
+        public Asset getAsset() {
+            return asset;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public String getManifest() {
+            return manifest;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+    }
+
+    /**
+     * Reads the Assets from a manifest file.
+     *
+     * @param manifest The manifest file.
+     * @param listener Receives each Asset, and each error.
+     * @return The number of Assets read.
+     */
+    public int read(File manifest, Listener listener) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(manifest))) {
+            return read(in, manifest.getPath(), listener);
+        } catch (IOException ex) {
+            listener.recordFailed(manifest.getPath(), 0, ex.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the Assets from a manifest.
+     *
+     * @param in The manifest's content, which is not closed.
+     * @param manifest The name of the manifest, to report errors against.
+     * @param listener Receives each Asset, and each error.
+     * @return The number of Assets read.
+     */
+    public int read(InputStream in, String manifest, Listener listener) {
+        int count = 0;
+        XMLStreamReader reader = null;
+        try {
+            reader = inputFactory.get().createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals(ASSET)) {
+                    if (readAsset(reader, manifest, listener)) {
+                        count++;
+                    }
+                }
+            }
+        } catch (XMLStreamException ex) {
+            int lineNumber = (ex.getLocation() != null ? ex.getLocation().getLineNumber() : 0);
+            listener.recordFailed(manifest, lineNumber, ex.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ex) {
+                    // The stream is closed by the caller
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads an Asset element, from its start tag to its end tag.
+     *
+     * @return true if the Asset was valid and passed to the listener.
+     */
+    private boolean readAsset(XMLStreamReader reader, String manifest, Listener listener) throws XMLStreamException {
+        int lineNumber = reader.getLocation().getLineNumber();
+        String type = null;
+        String length = null;
+        String description = null;
+        String filePath = null;
+        String invalidField = null;
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (depth == 1 && FIELDS.contains(reader.getLocalName())) {
+                    String field = reader.getLocalName();
+                    String text;
+                    try {
+                        text = reader.getElementText();
+                    } catch (XMLStreamException ex) {
+                        if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+                            throw ex;
+                        }
+                        // The field contains another element, which the reader is left on. The
+                        // Asset is skipped from here to its end tag, and the manifest read on
+                        // (if the XML is not well-formed, reading on throws again)
+                        invalidField = field;
+                        depth = 3;
+                        continue;
+                    }
+                    switch (field) {
+                        case "Type":
+                            type = text.trim();
+                            break;
+                        case "Length":
+                            length = text.trim();
+                            break;
+                        case "Description":
+                            description = text;
+                            break;
+                        case "FilePath":
+                            filePath = text.trim();
+                            break;
+                    }
+                    continue;
+                }
+                // Anything else is ignored, along with its content
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+
+        if (invalidField != null) {
+            listener.recordFailed(manifest, lineNumber, invalidField + " must contain only text");
+            return false;
+        }
+        if (type == null || length == null || description == null || filePath == null) {
+            listener.recordFailed(manifest, lineNumber, "Asset must have a Type, Length, Description and FilePath");
+            return false;
+        }
+
+        Asset asset;
+        try {
+            asset = new Asset(0, Integer.parseInt(length), Asset.AssetType.valueOf(type), description);
+        } catch (NumberFormatException ex) {
+            listener.recordFailed(manifest, lineNumber, "Invalid Length: " + length);
+            return false;
+        } catch (IllegalArgumentException ex) {
+            listener.recordFailed(manifest, lineNumber, "Invalid Type: " + type);
+            return false;
+        }
+        listener.assetRead(new Record(asset, filePath, manifest, lineNumber));
+        return true;
+    }
+}
@@ -1,6 +1,12 @@
 package Controllers;
 
 import Application.AppObservable;
+import Application.BackgroundTask;
+import Application.DataExecutor;
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Application.ModelChangeListener;
+import Application.SaveTask;
 import Models.Asset;
 import Models.Component;
 import Models.SetOfAssets;
@@ -10,8 +16,6 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Observable;
-import java.util.Observer;
 import javax.swing.DefaultListSelectionModel;
 import javax.swing.JOptionPane;
 import javax.swing.event.ListSelectionEvent;
@@ -23,11 +27,13 @@ import javax.swing.event.ListSelectionListener;
  * @see ComponentDetailView
  * @see AppObservable
  */
-public class ComponentDetailController implements Observer {
+public class ComponentDetailController implements ModelChangeListener {
     private final ComponentDetailView view;
     
     private Component component;
     private boolean isNew;
+    private boolean saving = false;
+    private boolean closed = false;
     
     private ModelChoiceController modelChoiceController;
     
@@ -44,10 +50,10 @@ public class ComponentDetailController implements Observer {
     }
     
     public void initialise() {
-        refreshView();
-        
         this.view.setEditMode(isNew);
         this.view.setCanViewAsset(false);
+        // Nothing can be saved until the Component is shown
+        this.view.setSaving(true);
         
         this.view.addAssetChoiceActionListener(new AssetChoiceActionListener());
         this.view.addSaveButtonActionListener(new SaveButtonActionListener());
@@ -57,11 +63,54 @@ public class ComponentDetailController implements Observer {
             this.view.addDiscardButtonActionListener(new DiscardButtonActionListener());
         }
         
-        /**
-         * Craig - TC B2c: Real time updates
-         * Register this controller as an observer
-         */
-        AppObservable.getInstance().addObserver(this);
+        DataExecutor.getInstance().execute(new LoadAssociationsTask());
+    }
+    
+    /**
+     * Loads the Component's Assets on the DataExecutor, rather than leaving
+     * refreshView() to load them on the event dispatch thread, then shows the
+     * Component.
+     */
+    class LoadAssociationsTask extends BackgroundTask<Component> {
+        private final Component loading = component;
+        
+        @Override
+        protected Component doInBackground() {
+            loading.getAssets();
+            return loading;
+        }
+        
+        @Override
+        protected void succeeded(Component loaded) {
+            refreshView();
+            view.setSaving(false);
+            
+            /**
+             * Craig - TC B2c: Real time updates
+             * Register this controller as an observer
+             */
+            if (!isNew) {
+                subscribeToChanges();
+            }
+        }
+    }
+    
+    /**
+     * Subscribes this controller to changes to its Component, unless it has been closed.
+     */
+    private void subscribeToChanges() {
+        if (!closed) {
+            AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Component, this.component.getId());
+        }
+    }
+    
+    /**
+     * Stops this controller observing AppObservable, once IndexController no longer
+     * shows its view.
+     */
+    public void close() {
+        closed = true;
+        AppObservable.getInstance().unsubscribe(this);
     }
     
     /**
@@ -109,10 +158,32 @@ public class ComponentDetailController implements Observer {
     }
     
     @Override
-    public void update(Observable o, Object o1) {
+    public void modelChanged(ModelChangeEvent event) {
         if (!this.isNew) {
-            this.component = Component.getComponentByID(this.component.getId());        
-            refreshView();
+            final int id = this.component.getId();
+            DataExecutor.getInstance().execute(new BackgroundTask<Component>() {
+                @Override
+                protected Component doInBackground() {
+                    Component reloaded = Component.getComponentByID(id);
+                    // Loaded here rather than by refreshView() on the event dispatch thread
+                    if (reloaded != null) {
+                        reloaded.getAssets();
+                    }
+                    return reloaded;
+                }
+                
+                @Override
+                protected void succeeded(Component reloaded) {
+                    if (reloaded == null) {
+                        // The Component has been deleted
+                        close();
+                        view.setVisible(false);
+                        return;
+                    }
+                    component = reloaded;
+                    refreshView();
+                }
+            });
         }
     }
     
@@ -123,35 +194,64 @@ public class ComponentDetailController implements Observer {
     class SaveButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            if (validateUserInputs()) {
+            // Ignore clicks made before an earlier save has finished
+            if (!saving && validateUserInputs()) {
+                saving = true;
+                view.setSaving(true);
                 view.setCursor(new Cursor(Cursor.WAIT_CURSOR));
                 
-                Component temp = component;
-                
                 Object[] objects = view.getAssets();
-                SetOfAssets assets = new SetOfAssets();
+                final SetOfAssets assets = new SetOfAssets();
                 for (Object object : objects) {
                     assets.add((Asset)object);
                 }
-
-                component.setDescription(view.getDescription());
-                component.setAssets(assets); 
                 
-                if (component.save()) {
-                    // Success
-                    if (modelChoiceController != null) {
-                        modelChoiceController.closeView();
+                final Component edited = component;
+                final String description = view.getDescription();
+                
+                DataExecutor.getInstance().execute(new SaveTask(edited) {
+                    // Kept so that the Component can be put back as it was if the save fails
+                    private String oldDescription;
+                    private SetOfAssets oldAssets;
+                    
+                    @Override
+                    protected void applyChanges() {
+                        oldDescription = edited.getDescription();
+                        oldAssets = edited.getAssets();
+                        
+                        edited.setDescription(description);
+                        edited.setAssets(assets);
                     }
-                    view.setEditMode(false);
-                    isNew = false;
-                }
-                else {
-                    // Failure
-                    component = temp;
-                    JOptionPane.showMessageDialog(view, "Error saving Component", "'Component' Error", JOptionPane.ERROR_MESSAGE);
-                }
+                    
+                    @Override
+                    protected void revertChanges() {
+                        edited.setDescription(oldDescription);
+                        edited.setAssets(oldAssets);
+                    }
+                    
+                    @Override
+                    protected void succeeded(Boolean saved) {
+                        if (saved) {
+                            // Success
+                            if (modelChoiceController != null) {
+                                modelChoiceController.closeView();
+                            }
+                            view.setEditMode(false);
+                            if (isNew) {
+                                subscribeToChanges();
+                            }
+                            isNew = false;
+                        }
+                        else {
+                            // Failure
+                            JOptionPane.showMessageDialog(view, "Error saving Component", "'Component' Error", JOptionPane.ERROR_MESSAGE);
+                        }
                 
-                view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                        saving = false;
+                        view.setSaving(false);
+                        view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                    }
+                });
             }
         }        
     }
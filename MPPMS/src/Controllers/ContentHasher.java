@@ -0,0 +1,105 @@
+package Controllers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the SHA-256 hash of a file's content, e.g. to tell whether an imported
+ * media file has been imported before, whatever it is called.
+ *
+ * The file is streamed through the digest rather than read into memory. Small files
+ * are read through a buffer; large ones are memory-mapped a window at a time, so
+ * the operating system pages them in without copying them into the heap.
+ *
+ * A hasher may be used by several threads at once.
+ */
+public class ContentHasher {
+    private static final String ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAP_THRESHOLD = 4L * 1024 * 1024;
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * MessageDigest is not thread-safe, so each thread keeps its own, along with
+     * the buffer it reads small files into.
+     */
+    private static final ThreadLocal<MessageDigest> digest = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException ex) {
+                // Every Java platform must support SHA-256
+                throw new IllegalStateException(ex);
+            }
+        }
+    };
+    private static final ThreadLocal<ByteBuffer> buffer = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
+    /**
+     * Hashes a file's content.
+     *
+     * @param file The file.
+     * @return The hash, as lower case hex digits.
+     * @throws IOException If the file could not be read.
+     */
+    public String hash(File file) throws IOException {
+        MessageDigest messageDigest = digest.get();
+        messageDigest.reset();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                for (long position = 0; position < size; position += MAP_WINDOW) {
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+                    messageDigest.update(window);
+                }
+            }
+            else {
+                ByteBuffer readBuffer = buffer.get();
+                readBuffer.clear();
+                while (channel.read(readBuffer) >= 0) {
+                    readBuffer.flip();
+                    messageDigest.update(readBuffer);
+                    readBuffer.clear();
+                }
+            }
+        }
+
+        return toHex(messageDigest.digest());
+    }
+
+    /**
+     * Hashes a string, e.g. to identify something other than a file by its content.
+     *
+     * @param text The string, which is hashed as UTF-8.
+     * @return The hash, as lower case hex digits.
+     */
+    public String hash(String text) {
+        MessageDigest messageDigest = digest.get();
+        messageDigest.reset();
+        return toHex(messageDigest.digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -1,24 +1,13 @@
 package Controllers;
 
-import Models.Asset;
-import Models.SetOfAssets;
-import Models.Task;
-import Models.Task.TaskType;
+import Application.BackgroundTask;
+import Application.DataExecutor;
 import Views.ImportAssetsView;
 import java.awt.Cursor;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.io.IOException;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.swing.Timer;
 
 /**
  * Controller for ImportAssetsView.
@@ -28,6 +17,13 @@ import org.xml.sax.SAXException;
 
 public class ImportAssetsController {
     private final ImportAssetsView view;
+    private AssetImportPipeline importPipeline = null;
+    private final Timer progressTimer = new Timer(250, new ActionListener() {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            updateProgress();
+        }
+    });
     
     /**
      * ImportAssetsController constructor
@@ -39,85 +35,79 @@ public class ImportAssetsController {
     }
     
     /**
-     * Adds ActionListener for the file chooser.
+     * Adds ActionListeners for the file chooser and the cancel button.
      */
     public void initialise() {
         view.addFileChooserActionListener(new AssetsChooserActionListener());
+        view.addCancelImportButtonActionListener(new CancelImportActionListener());
     }
     
     /**
      * Called from the file chooser ActionListener.
-     * Parses the XML content of the chosen .asset files and creates Asset objects for each one.
-     * Calls createTasks for each .asset file if the check box to create 'Inbound QA Tasks' is ticked.
+     * Imports the Assets in the chosen .asset files, and an 'Inbound QA Task' for each
+     * of them if the check box is ticked, using an AssetImportPipeline.
+     * An Asset which cannot be read is logged and skipped.
+     * Observers are notified once for each batch of Assets as it is committed.
+     * The files are imported on the import thread, with the progress shown in the view.
      */
-    
     public void parseAssetFiles() {
-        File [] assetFiles = view.getFiles();
+        final File [] assetFiles = view.getFiles();
+        final boolean createTasks = view.getTasksCheckbox();
+        if (assetFiles == null || assetFiles.length == 0 || importPipeline != null) {
+            return;
+        }
         
-        for (File file : assetFiles) {
-            try 
-            {
-                String pathToFile = file.getPath();
-                pathToFile = pathToFile.replaceAll("%20", " ");
-                File fXmlFile = new File(pathToFile);
-                DocumentBuilder docBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-                Document doc = docBuilder.parse(fXmlFile);
-
-                // Prevent unwanted behaviour resulting from poorly formatted XML
-                doc.getDocumentElement().normalize();
-
-                // Get the assets
-                NodeList nodes = doc.getElementsByTagName("Asset");
-                
-                for (int i = 0; i < nodes.getLength(); i++)
-                {
-                    Node node = nodes.item(i);
-                    if (node.getNodeType() == Node.ELEMENT_NODE)
-                    {
-                        Element element = (Element)node;
-                        int length = Integer.parseInt(element.getElementsByTagName("Length").item(0).getTextContent());
-                        Asset.AssetType assetType = Asset.AssetType.valueOf(element.getElementsByTagName("Type").item(0).getTextContent());
-                        String description = element.getElementsByTagName("Description").item(0).getTextContent();
-                        String filePath = element.getElementsByTagName("FilePath").item(0).getTextContent();
-
-                        Asset asset = new Asset(0, length, assetType, description);
-                        
-                        File f = new File(filePath);
-                        
-                        if (f.exists()) {
-                            asset.setFile(f);
-                        } else {
-                            
-                        }
-                        
-                        asset.save();
-                        
-                        // Create Inbound QA_Moderation Task for Asset
-                        if (view.getTasksCheckbox()) {
-                            createTasks(asset);
-                        }
-                    }
-                }
+        // Copies of the files with any escaped spaces in their paths replaced
+        File [] manifests = new File[assetFiles.length];
+        for (int i = 0; i < assetFiles.length; i++) {
+            manifests[i] = new File(assetFiles[i].getPath().replaceAll("%20", " "));
+        }
+        
+        final AssetImportPipeline pipeline = new AssetImportPipeline(manifests, createTasks);
+        importPipeline = pipeline;
+        view.setImportRunning(true);
+        view.setCursor(new Cursor(Cursor.WAIT_CURSOR));
+        progressTimer.start();
+        
+        DataExecutor.getInstance().executeImport(new BackgroundTask<Void>() {
+            @Override
+            protected Void doInBackground() {
+                pipeline.run();
+                return null;
             }
-            catch (ParserConfigurationException | SAXException | IOException | DOMException ex)
-            {
-                System.out.println(ex.getMessage());
+            
+            @Override
+            protected void succeeded(Void result) {
+                importFinished();
             }
-        }
+            
+            @Override
+            protected void failed(Throwable cause) {
+                super.failed(cause);
+                importFinished();
+            }
+        });
+    }
+    
+    private void importFinished() {
+        progressTimer.stop();
+        updateProgress();
+        importPipeline = null;
+        view.setImportRunning(false);
+        view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
     }
     
     /**
-     * Creates a new task of type Inbound QA for the selected asset
-     * @param asset The asset object created from the selected .asset file.
+     * Shows how far the running import has got.
      */
-    public void createTasks(Asset asset) {
-        SetOfAssets assets = new SetOfAssets();
-        assets.add(asset);
-        Task newTask = new Task();
-        newTask.setTitle("Inbound QA Task for Asset " + asset.getId());
-        newTask.setTaskType(TaskType.Inbound_QA);
-        newTask.setAssets(assets);
-        newTask.save();
+    private void updateProgress() {
+        AssetImportPipeline pipeline = importPipeline;
+        if (pipeline != null) {
+            String status = String.format("%,d assets imported (%,.0f per second), %,d duplicates, %,d skipped%s",
+                    pipeline.getAssetsImported(), pipeline.getAssetsPerSecond(), pipeline.getAssetsDuplicated(),
+                    pipeline.getAssetsSkipped(), (pipeline.isCancelled() ? " - cancelled" : ""));
+            view.setImportProgress(pipeline.getPercentComplete(), status);
+        }
     }
     
     /**
@@ -127,9 +117,22 @@ public class ImportAssetsController {
     class AssetsChooserActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            view.setCursor(new Cursor(Cursor.WAIT_CURSOR));
             parseAssetFiles();
-            view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
         } 
-    }  
+    }
+    
+    /**
+     * Called when the cancel button is pressed
+     * Stops the running import; the Assets which have already been saved are kept
+     */
+    class CancelImportActionListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            AssetImportPipeline pipeline = importPipeline;
+            if (pipeline != null) {
+                pipeline.cancel();
+                updateProgress();
+            }
+        }
+    }
 }
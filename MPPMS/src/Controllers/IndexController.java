@@ -2,9 +2,18 @@ package Controllers;
 
 import Application.AppObservable;
 import Application.AppTracker;
+import Application.BackgroundTask;
+import Application.DataExecutor;
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Application.ModelChangeListener;
 import Models.Asset;
 import Models.Component;
 import Models.Project;
+import Models.SetOfAssets;
+import Models.SetOfComponents;
+import Models.SetOfProjects;
+import Models.SetOfTasks;
 import Models.Task;
 import Models.User;
 import Models.User.Role;
@@ -20,8 +29,7 @@ import java.awt.Cursor;
 import java.awt.Frame;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.ArrayList;
 import javax.swing.JPanel;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -29,12 +37,13 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 /**
- * Controller for IndexView. Observer to AppObservable.
+ * Controller for IndexView. Listens to AppObservable for changes to the models
+ * shown in its tables.
  * 
  * @see IndexView
  * @see AppObservable
  */
-public class IndexController implements Observer {
+public class IndexController implements ModelChangeListener {
     private final User currentUser;
     
     private final IndexView view = new IndexView();
@@ -45,6 +54,7 @@ public class IndexController implements Observer {
     private ProjectOverviewController projectOverviewController;
     private ImportAssetsController importAssetsController;
     private ProjectsHierarchyController contentHierarchyController;
+    private RefreshTablesTask refreshTablesTask;
     
     /**
      * IndexController constructor
@@ -91,18 +101,19 @@ public class IndexController implements Observer {
          * Craig - TC B2c: Real time updates
          * Register this controller as an observer
          */
-        AppObservable.getInstance().addObserver(this);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Project);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Task);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Component);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Asset);
     }
     
     /**
      * Retrieves all relevant data for the logged in User and populates the 4
-     * tables (1 per tab).
+     * tables (1 per tab). The data is loaded in the background; a load which
+     * is still running is superseded.
      */
     private void populateTables() {
-        this.view.setProjectsTableData(Project.getProjectsForUser(currentUser));
-        this.view.setTasksTableData(Task.getTasksForUser(currentUser));
-        this.view.setComponentsTableData(Component.getAllComponents());
-        this.view.setAssetsTableData(Asset.getAllAssets());
+        refreshTablesTask = DataExecutor.getInstance().supersede(refreshTablesTask, new RefreshTablesTask(ModelChangeEvent.fullRefresh(), false));
     }
     
     /**
@@ -111,6 +122,7 @@ public class IndexController implements Observer {
      * this controller's view.
      */
     private void projectValueChanged() {
+        closeDetailController();
         if (view.getSelectedProject() == null) {
             view.setDetailViewPanel(null);
         }
@@ -134,6 +146,7 @@ public class IndexController implements Observer {
      * this controller's view.
      */
     private void taskValueChanged() {
+        closeDetailController();
         if (view.getSelectedTask() == null) {
             view.setDetailViewPanel(null);
         }
@@ -153,6 +166,7 @@ public class IndexController implements Observer {
      * this controller's view.
      */
     private void componentValueChanged() {
+        closeDetailController();
         if (view.getSelectedComponent() == null) {
             view.setDetailViewPanel(null);
         }
@@ -172,6 +186,7 @@ public class IndexController implements Observer {
      * this controller's view.
      */
     private void assetValueChanged() {
+        closeDetailController();
         if (view.getSelectedAsset() == null) {
             view.setDetailViewPanel(null);
         }
@@ -183,6 +198,29 @@ public class IndexController implements Observer {
         }
     }
     
+    /**
+     * Closes the controller of the detail view shown in this controller's view, so
+     * that it stops observing AppObservable once its view is replaced or closed.
+     */
+    private void closeDetailController() {
+        if (projectDetailController != null) {
+            projectDetailController.close();
+            projectDetailController = null;
+        }
+        if (taskDetailController != null) {
+            taskDetailController.close();
+            taskDetailController = null;
+        }
+        if (componentDetailController != null) {
+            componentDetailController.close();
+            componentDetailController = null;
+        }
+        if (assetDetailController != null) {
+            assetDetailController.close();
+            assetDetailController = null;
+        }
+    }
+    
     /**
      * Called whenever a selected value changes in any of the 4 tables.
      */
@@ -206,24 +244,113 @@ public class IndexController implements Observer {
     }
 
     @Override
-    public void update(Observable o, Object o1) {
-        // Store any currently selected Models in the tables
-        int selectedProjectId = (view.getSelectedProject() == null ? -1 : view.getSelectedProject().getId());
-        int selectedTaskId = (view.getSelectedTask() == null ? -1 : view.getSelectedTask().getId());
-        int selectedComponentId = (view.getSelectedComponent() == null ? -1 : view.getSelectedComponent().getId());
-        int selectedAssetId = (view.getSelectedAsset() == null ? -1 : view.getSelectedAsset().getId());
+    public void modelChanged(ModelChangeEvent event) {
+        RefreshTablesTask task = new RefreshTablesTask(event, true);
+        if (event.isFullRefresh()) {
+            // A full refresh reloads every table, so any earlier refresh is no longer needed
+            refreshTablesTask = DataExecutor.getInstance().supersede(refreshTablesTask, task);
+        }
+        else {
+            DataExecutor.getInstance().execute(task);
+        }
+    }
+    
+    /**
+     * Loads the data for the tables affected by a change on the data thread, then
+     * shows it in the view. The view updates its tables in place, so a model which
+     * was added or removed becomes a single row insert or delete and only the rows
+     * of the changed models are repainted. After a full refresh every table is
+     * reloaded.
+     */
+    class RefreshTablesTask extends BackgroundTask<Void> {
+        private final ModelChangeEvent event;
+        private final boolean restoreSelection;
         
-        // Repopulate the tables
-        populateTables();
+        private SetOfProjects projects;
+        private SetOfTasks tasks;
+        private SetOfComponents components;
+        private SetOfAssets assets;
+        private final ArrayList<Project> changedProjects = new ArrayList<>();
+        private final ArrayList<Task> changedTasks = new ArrayList<>();
+        private final ArrayList<Component> changedComponents = new ArrayList<>();
+        private final ArrayList<Asset> changedAssets = new ArrayList<>();
+        
+        RefreshTablesTask(ModelChangeEvent event, boolean restoreSelection) {
+            this.event = event;
+            this.restoreSelection = restoreSelection;
+        }
         
-        // Select any models which were previously selected
-        view.setSelectedProject(Project.getProjectById(selectedProjectId));
-        view.setSelectedTask(Task.getTaskByID(selectedTaskId));
-        view.setSelectedComponent(Component.getComponentByID(selectedComponentId));
-        view.setSelectedAsset(Asset.getAssetByID(selectedAssetId));
+        @Override
+        protected Void doInBackground() {
+            if (event.affects(ModelChange.EntityType.Project)) {
+                projects = Project.getProjectsForUser(currentUser);
+                for (int id : event.getIds(ModelChange.EntityType.Project)) {
+                    changedProjects.add(Project.getProjectById(id));
+                }
+            }
+            if (event.affects(ModelChange.EntityType.Task)) {
+                tasks = Task.getTasksForUser(currentUser);
+                for (int id : event.getIds(ModelChange.EntityType.Task)) {
+                    changedTasks.add(Task.getTaskByID(id));
+                }
+            }
+            if (event.affects(ModelChange.EntityType.Component)) {
+                components = Component.getAllComponents();
+                for (int id : event.getIds(ModelChange.EntityType.Component)) {
+                    changedComponents.add(Component.getComponentByID(id));
+                }
+            }
+            if (event.affects(ModelChange.EntityType.Asset)) {
+                assets = Asset.getAllAssets();
+                for (int id : event.getIds(ModelChange.EntityType.Asset)) {
+                    changedAssets.add(Asset.getAssetByID(id));
+                }
+            }
+            return null;
+        }
         
-        // Ensure that we remain looking at the same tab / detail view
-        valueChanged();
+        @Override
+        protected void succeeded(Void result) {
+            // Store any currently selected Models in the tables
+            Project selectedProject = view.getSelectedProject();
+            Task selectedTask = view.getSelectedTask();
+            Component selectedComponent = view.getSelectedComponent();
+            Asset selectedAsset = view.getSelectedAsset();
+            
+            if (event.isFullRefresh()) {
+                view.setProjectsTableData(projects);
+                view.setTasksTableData(tasks);
+                view.setComponentsTableData(components);
+                view.setAssetsTableData(assets);
+            }
+            else {
+                if (projects != null) {
+                    view.refreshProjectsTableData(projects, changedProjects);
+                }
+                if (tasks != null) {
+                    view.refreshTasksTableData(tasks, changedTasks);
+                }
+                if (components != null) {
+                    view.refreshComponentsTableData(components, changedComponents);
+                }
+                if (assets != null) {
+                    view.refreshAssetsTableData(assets, changedAssets);
+                }
+            }
+            
+            if (restoreSelection) {
+                // Select any models which were previously selected (no change for tables which kept their rows)
+                view.setSelectedProject(selectedProject);
+                view.setSelectedTask(selectedTask);
+                view.setSelectedComponent(selectedComponent);
+                view.setSelectedAsset(selectedAsset);
+                
+                if (event.isFullRefresh()) {
+                    // Ensure that we remain looking at the same tab / detail view
+                    valueChanged();
+                }
+            }
+        }
     }
     
     /**
@@ -233,6 +360,7 @@ public class IndexController implements Observer {
     class NewProjectButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {        
+            closeDetailController();
             ProjectDetailView detailView = new ProjectDetailView();
             detailView.addDiscardButtonActionListener(new DiscardNewActionListener());
             
@@ -251,6 +379,7 @@ public class IndexController implements Observer {
     class NewTaskButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
+            closeDetailController();
             TaskDetailView detailView = new TaskDetailView();
             detailView.addDiscardButtonActionListener(new DiscardNewActionListener());
             
@@ -269,6 +398,7 @@ public class IndexController implements Observer {
     class NewComponentButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
+            closeDetailController();
             ComponentDetailView detailView = new ComponentDetailView();
             detailView.addDiscardButtonActionListener(new DiscardNewActionListener());
             
@@ -287,6 +417,7 @@ public class IndexController implements Observer {
     class NewAssetButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
+            closeDetailController();
             AssetDetailView detailView = new AssetDetailView();
             detailView.addDiscardButtonActionListener(new DiscardNewActionListener());
             
@@ -304,6 +435,7 @@ public class IndexController implements Observer {
     class ImportAssetsButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
+            closeDetailController();
             ImportAssetsView detailView = new ImportAssetsView();
             
             importAssetsController = new ImportAssetsController(detailView);
@@ -321,6 +453,7 @@ public class IndexController implements Observer {
     class DiscardNewActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
+            closeDetailController();
             view.setDetailViewPanel(new JPanel());
         }
     }
@@ -342,6 +475,8 @@ public class IndexController implements Observer {
     class UserMenuLogOutActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
+            closeDetailController();
+            AppObservable.getInstance().unsubscribe(IndexController.this);
             view.dispose();
             for (Frame frame : Frame.getFrames()) {
                 if (frame.getTitle().equals("MPPMS - Login")) {
@@ -1,6 +1,9 @@
 package Controllers;
 
 import Application.AppObservable;
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Application.ModelChangeListener;
 import Exceptions.NoModelSelectedException;
 import Models.Asset;
 import Models.Component;
@@ -10,10 +13,10 @@ import Models.User;
 import Views.ModelChoiceView;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.Collection;
 import java.util.ArrayList;
-import java.util.Observable;
-import java.util.Observer;
 import javax.swing.JPanel;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
@@ -24,7 +27,7 @@ import javax.swing.event.ListSelectionListener;
  * 
  * @see Model
  */
-public class ModelChoiceController implements Observer {
+public class ModelChoiceController implements ModelChangeListener {
     private final ModelChoiceView view = new ModelChoiceView();
     private final ModelType modelType;
     
@@ -98,6 +101,7 @@ public class ModelChoiceController implements Observer {
         view.addClearSelectionButtonActionListener(new ClearSelectionButtonActionListener());
         view.addChosenModelsListSelectionListener(new ChosenModelsListSelectionListener());
         view.addAvailableModelsListSelectionListener(new AvailableModelsListSelectionListener());
+        view.addWindowListener(new ViewWindowListener());
         
         view.setVisible(true);
         
@@ -105,7 +109,7 @@ public class ModelChoiceController implements Observer {
          * Craig - TC B2c: Real time updates
          * Register this controller as an observer
          */
-        AppObservable.getInstance().addObserver(this);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.valueOf(this.modelType.toString()));
     }
     
     /**
@@ -172,7 +176,7 @@ public class ModelChoiceController implements Observer {
     }
 
     @Override
-    public void update(Observable o, Object o1) {
+    public void modelChanged(ModelChangeEvent event) {
         /**
          * This method is called after something in the database has changed.
          * It retrieves all of it's data again (which will now be updated) and sets
@@ -360,4 +364,15 @@ public class ModelChoiceController implements Observer {
             view.setAddModelButtonEnabled(view.availableModelSelected());
         }
     }
+    
+    /**
+     * Window listener for the view. Stops this controller observing AppObservable
+     * once the view has been closed.
+     */
+    class ViewWindowListener extends WindowAdapter {
+        @Override
+        public void windowClosed(WindowEvent e) {
+            AppObservable.getInstance().unsubscribe(ModelChoiceController.this);
+        }
+    }
 }
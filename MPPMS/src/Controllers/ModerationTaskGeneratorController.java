@@ -1,5 +1,7 @@
 package Controllers;
 
+import Application.DataExecutor;
+import Application.SaveTask;
 import Models.Report;
 import Models.SetOfAssets;
 import Models.SetOfUsers;
@@ -77,10 +79,15 @@ public class ModerationTaskGeneratorController {
             task.setReport(new Report());
             task.setStatus(Task.Status.Created);
             task.setTitle("Moderation Task following QC Task ID " + qcTaskId);
-            if (!task.save()) {
-                JOptionPane.showMessageDialog(view, "Error saving Moderation Task", "'Moderation Task' Error", JOptionPane.ERROR_MESSAGE);
-            }
-            view.dispose();
+            DataExecutor.getInstance().execute(new SaveTask(task) {
+                @Override
+                protected void succeeded(Boolean saved) {
+                    if (!saved) {
+                        JOptionPane.showMessageDialog(view, "Error saving Moderation Task", "'Moderation Task' Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                    view.dispose();
+                }
+            });
         }
     }
 }
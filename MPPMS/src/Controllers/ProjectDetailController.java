@@ -1,6 +1,12 @@
 package Controllers;
 
 import Application.AppObservable;
+import Application.BackgroundTask;
+import Application.DataExecutor;
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Application.ModelChangeListener;
+import Application.SaveTask;
 import Models.Component;
 import Models.Project;
 import Models.SetOfComponents;
@@ -14,8 +20,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.Date;
 import javax.swing.DefaultListSelectionModel;
 import javax.swing.JOptionPane;
 import javax.swing.event.ListSelectionEvent;
@@ -26,12 +31,14 @@ import javax.swing.event.ListSelectionListener;
  * 
  * @see ProjectDetailView
  */
-public class ProjectDetailController implements Observer {
+public class ProjectDetailController implements ModelChangeListener {
     private final ProjectDetailView view;
     private final boolean canEdit;
     
     private Project project;    
     private boolean isNew;
+    private boolean saving = false;
+    private boolean closed = false;
     
     private ModelChoiceController modelChoiceController;
     
@@ -69,12 +76,12 @@ public class ProjectDetailController implements Observer {
      * Initialises the view, adds event listeners and makes the view visible.
      */
     public void initialise() {
-        refreshView();
-            
         this.view.setEditMode(this.isNew, this.canEdit);
         this.view.setCanViewTask(false);
         this.view.setCanEditComponent(false);
         this.view.setCanViewOverview(this.canEdit && !this.isNew);
+        // Nothing can be saved until the Project is shown
+        this.view.setSaving(true);
 
         // Add event listeners
         this.view.addTeamChoiceActionListener(new TeamChoiceActionListener());
@@ -88,11 +95,56 @@ public class ProjectDetailController implements Observer {
             this.view.addDiscardButtonActionListener(new DiscardButtonActionListener());
         }
         
-        /**
-         * Craig - TC B2c: Real time updates
-         * Register this controller as an observer
-         */
-        AppObservable.getInstance().addObserver(this);
+        DataExecutor.getInstance().execute(new LoadAssociationsTask());
+    }
+    
+    /**
+     * Loads the Project's Team, Tasks and Components on the DataExecutor, rather than
+     * leaving refreshView() to load them on the event dispatch thread, then shows
+     * the Project.
+     */
+    class LoadAssociationsTask extends BackgroundTask<Project> {
+        private final Project loading = project;
+        
+        @Override
+        protected Project doInBackground() {
+            loading.getTeam();
+            loading.getTasks();
+            loading.getComponents();
+            return loading;
+        }
+        
+        @Override
+        protected void succeeded(Project loaded) {
+            refreshView();
+            view.setSaving(false);
+            
+            /**
+             * Craig - TC B2c: Real time updates
+             * Register this controller as an observer
+             */
+            if (!isNew) {
+                subscribeToChanges();
+            }
+        }
+    }
+    
+    /**
+     * Subscribes this controller to changes to its Project, unless it has been closed.
+     */
+    private void subscribeToChanges() {
+        if (!closed) {
+            AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Project, this.project.getId());
+        }
+    }
+    
+    /**
+     * Stops this controller observing AppObservable, once IndexController no longer
+     * shows its view.
+     */
+    public void close() {
+        closed = true;
+        AppObservable.getInstance().unsubscribe(this);
     }
     
     /**
@@ -154,10 +206,34 @@ public class ProjectDetailController implements Observer {
     }
 
     @Override
-    public void update(Observable o, Object o1) {
+    public void modelChanged(ModelChangeEvent event) {
         if (!this.isNew) {
-            this.project = Project.getProjectById(this.project.getId());
-            refreshView();
+            final int id = this.project.getId();
+            DataExecutor.getInstance().execute(new BackgroundTask<Project>() {
+                @Override
+                protected Project doInBackground() {
+                    Project reloaded = Project.getProjectById(id);
+                    // Loaded here rather than by refreshView() on the event dispatch thread
+                    if (reloaded != null) {
+                        reloaded.getTeam();
+                        reloaded.getTasks();
+                        reloaded.getComponents();
+                    }
+                    return reloaded;
+                }
+                
+                @Override
+                protected void succeeded(Project reloaded) {
+                    if (reloaded == null) {
+                        // The Project has been deleted
+                        close();
+                        view.setVisible(false);
+                        return;
+                    }
+                    project = reloaded;
+                    refreshView();
+                }
+            });
         }
     }
     
@@ -168,54 +244,110 @@ public class ProjectDetailController implements Observer {
     class SaveButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            if (validateUserInputs()) {
+            // Ignore clicks made before an earlier save has finished
+            if (!saving && validateUserInputs()) {
+                saving = true;
+                view.setSaving(true);
                 view.setCursor(new Cursor(Cursor.WAIT_CURSOR));
                 
                 // Setup the project with user inputted data from the view
                 Object[] objects = view.getTeam();
-                SetOfUsers team = new SetOfUsers();
+                final SetOfUsers team = new SetOfUsers();
                 for (Object object : objects) {
                     team.add((User)object);
                 }
 
                 objects = view.getTasks();
-                SetOfTasks tasks = new SetOfTasks();
+                final SetOfTasks tasks = new SetOfTasks();
                 for (Object object : objects) {
                     tasks.add((Task)object);
                 }
 
                 objects = view.getProjectComponents();
-                SetOfComponents components = new SetOfComponents();
+                final SetOfComponents components = new SetOfComponents();
                 for (Object object : objects) {
                     components.add((Component)object);
                 }
                 
-                Project temp = project;
+                final Project edited = project;
+                final Date deadline = view.getDeadlineDate();
+                final String title = view.getProjectTitle();
+                final Project.Priority priority = Project.Priority.valueOf(view.getPriority().toString());
+                final User client = view.getClient();
+                final User manager = (User)view.getManager();
+                final User coordinator = (User)view.getCoordinator();
                 
-                project.setDeadline(view.getDeadlineDate());
-                project.setTitle(view.getProjectTitle());
-                project.setPriority(Project.Priority.valueOf(view.getPriority().toString()));
-                project.setClient(view.getClient());
-                project.setManager((User)view.getManager());
-                project.setCoordinator((User)view.getCoordinator());
-                project.setTeam(team);
-                project.setTasks(tasks);
-                project.setComponents(components);
-                if (project.save()) {
-                    // Success
-                    if (modelChoiceController != null) {
-                        modelChoiceController.closeView();
+                DataExecutor.getInstance().execute(new SaveTask(edited) {
+                    // Kept so that the Project can be put back as it was if the save fails
+                    private Date oldDeadline;
+                    private String oldTitle;
+                    private Project.Priority oldPriority;
+                    private User oldClient;
+                    private User oldManager;
+                    private User oldCoordinator;
+                    private SetOfUsers oldTeam;
+                    private SetOfTasks oldTasks;
+                    private SetOfComponents oldComponents;
+                    
+                    @Override
+                    protected void applyChanges() {
+                        oldDeadline = edited.getDeadline();
+                        oldTitle = edited.getTitle();
+                        oldPriority = edited.getPriority();
+                        oldClient = edited.getClient();
+                        oldManager = edited.getManager();
+                        oldCoordinator = edited.getCoordinator();
+                        oldTeam = edited.getTeam();
+                        oldTasks = edited.getTasks();
+                        oldComponents = edited.getComponents();
+                        
+                        edited.setDeadline(deadline);
+                        edited.setTitle(title);
+                        edited.setPriority(priority);
+                        edited.setClient(client);
+                        edited.setManager(manager);
+                        edited.setCoordinator(coordinator);
+                        edited.setTeam(team);
+                        edited.setTasks(tasks);
+                        edited.setComponents(components);
                     }
-                    view.setEditMode(false, canEdit);
-                    isNew = false;
-                }
-                else {
-                    // Failure
-                    project = temp;
-                    JOptionPane.showMessageDialog(view, "Error saving Project", "'Project' Error", JOptionPane.ERROR_MESSAGE);
-                }
+                    
+                    @Override
+                    protected void revertChanges() {
+                        edited.setDeadline(oldDeadline);
+                        edited.setTitle(oldTitle);
+                        edited.setPriority(oldPriority);
+                        edited.setClient(oldClient);
+                        edited.setManager(oldManager);
+                        edited.setCoordinator(oldCoordinator);
+                        edited.setTeam(oldTeam);
+                        edited.setTasks(oldTasks);
+                        edited.setComponents(oldComponents);
+                    }
+                    
+                    @Override
+                    protected void succeeded(Boolean saved) {
+                        if (saved) {
+                            // Success
+                            if (modelChoiceController != null) {
+                                modelChoiceController.closeView();
+                            }
+                            view.setEditMode(false, canEdit);
+                            if (isNew) {
+                                subscribeToChanges();
+                            }
+                            isNew = false;
+                        }
+                        else {
+                            // Failure
+                            JOptionPane.showMessageDialog(view, "Error saving Project", "'Project' Error", JOptionPane.ERROR_MESSAGE);
+                        }
                 
-                view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                        saving = false;
+                        view.setSaving(false);
+                        view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                    }
+                });
             }
         }        
     }
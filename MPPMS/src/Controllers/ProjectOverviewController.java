@@ -1,14 +1,17 @@
 package Controllers;
 
 import Application.AppObservable;
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Application.ModelChangeListener;
 import Models.Project;
 import Models.SetOfTasks;
 import Models.Task;
 import Views.ProjectOverviewView;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Observable;
-import java.util.Observer;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import javax.swing.DefaultListSelectionModel;
 import javax.swing.JComboBox;
 import javax.swing.event.ListSelectionEvent;
@@ -20,7 +23,7 @@ import javax.swing.event.ListSelectionListener;
  * @see ProjectOverviewView
  * @see AppObservable
  */
-public class ProjectOverviewController implements Observer {
+public class ProjectOverviewController implements ModelChangeListener {
     private final ProjectOverviewView view;
     
     private Project project;
@@ -47,6 +50,7 @@ public class ProjectOverviewController implements Observer {
         this.view.addProjectComboActionListener(new ProjectComboActionListener());
         this.view.addOptionComboActionListener(new OptionComboActionListener());
         this.view.addTasksListSelectionListener(new TasksListSelectionListener());
+        this.view.addWindowListener(new ViewWindowListener());
         
         this.view.setVisible(true);
         
@@ -56,7 +60,8 @@ public class ProjectOverviewController implements Observer {
          * Craig - TC B2c: Real time updates
          * Register this controller as an observer
          */
-        AppObservable.getInstance().addObserver(this);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Project);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Task);
     }
     
     /**
@@ -77,24 +82,36 @@ public class ProjectOverviewController implements Observer {
     }
     
     /**
-     * Gets all Tasks for this Project.
+     * Gets the Tasks for this Project which have the status selected in the view.
      * 
-     * @return Set of all Tasks which are part of the Project.
+     * @return Set of the Project's Tasks with the selected status.
      */
     private SetOfTasks getTasks() {
-        SetOfTasks tasks = new SetOfTasks();
-        for (Task t : this.project.getTasks()) {
-            if (t.getStatus() == (Task.Status)this.view.getOption()) {
-                tasks.add(t);
-            }
-        }
-        return tasks;
+        return Task.getTasksByStatus((Task.Status)this.view.getOption(), this.project.getTasks());
     }
     
     @Override
-    public void update(Observable o, Object o1) {
-        this.project = Project.getProjectById(this.project.getId());
-        refreshView();
+    public void modelChanged(ModelChangeEvent event) {
+        // The view lists every Project, but only this Project's Tasks
+        if (event.affects(ModelChange.EntityType.Project) || affectsTasks(event)) {
+            this.project = Project.getProjectById(this.project.getId());
+            refreshView();
+        }
+    }
+    
+    /**
+     * Checks whether any of this Project's Tasks were changed.
+     * 
+     * @param event The changes which were made.
+     * @return true if a change was made to one of the Project's Tasks.
+     */
+    private boolean affectsTasks(ModelChangeEvent event) {
+        for (int taskId : event.getIds(ModelChange.EntityType.Task)) {
+            if (this.project.getTasks().contains(Task.getTaskByID(taskId))) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -132,4 +149,15 @@ public class ProjectOverviewController implements Observer {
             task = (Task)view.getSelectedTask();
         }
     }
+    
+    /**
+     * Window listener for the view. Stops this controller observing AppObservable
+     * once the view has been closed.
+     */
+    class ViewWindowListener extends WindowAdapter {
+        @Override
+        public void windowClosed(WindowEvent e) {
+            AppObservable.getInstance().unsubscribe(ProjectOverviewController.this);
+        }
+    }
 }
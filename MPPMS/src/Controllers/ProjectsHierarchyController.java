@@ -1,36 +1,46 @@
 package Controllers;
 
 import Application.AppObservable;
+import Application.BackgroundTask;
+import Application.DataExecutor;
+import Application.SaveTask;
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Application.ModelChangeListener;
 import Models.Asset;
 import Models.Component;
 import Models.Project;
 import Models.SetOfAssets;
 import Models.SetOfComponents;
-import Models.SetOfProjects;
 import Models.SetOfTasks;
 import Models.Task;
 import Models.User;
 import Views.ProjectsHierarchyView;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Observable;
-import java.util.Observer;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
 
 /**
  * Controller for ProjectsHierarchyView
  * @author Kirsty
  */
 
-public class ProjectsHierarchyController implements Observer {
+public class ProjectsHierarchyController implements ModelChangeListener {
     private final ProjectsHierarchyView view;
     private final User currentUser;
     private Asset asset;
     private Project selectedProject;
     private DefaultMutableTreeNode selectedNode;
+    private final ProjectsHierarchyTreeModel treeModel;
+    private LoadAssetDetailTask assetDetailTask = null;
     
     /**
      * 
@@ -40,7 +50,9 @@ public class ProjectsHierarchyController implements Observer {
     public ProjectsHierarchyController(ProjectsHierarchyView view, User currentUser) {
         this.view = view;
         this.currentUser = currentUser;
+        this.treeModel = new ProjectsHierarchyTreeModel(currentUser);
         
+        this.view.addProjectsTreeWillExpandListener(new ProjectsTreeWillExpandListener());
         this.view.addProjectsTreeSelectionListener(new ProjectsTreeSelectionListener());
         this.view.addAddToTaskButtonActionListener(new AddToTaskActionListener());
         this.view.addAddToComponentButtonActionListener(new AddToComponentActionListener());
@@ -57,160 +69,249 @@ public class ProjectsHierarchyController implements Observer {
     public void initialise() {
         view.setControlsEnabled(false);
         view.setControlsVisible(false);
+        view.setTreeModel(treeModel);
+        view.addWindowListener(new ViewWindowListener());
         view.setVisible(true);
-        refreshView(); // Populates the JTree (projectTree)
+        loadChildren((DefaultMutableTreeNode)treeModel.getRoot()); // Populates the JTree (projectTree) with the projects
 
-        // Observer pattern: update() is called when this is notified by AppObservable
+        // Observer pattern: modelChanged() is called when this is notified by AppObservable
         // Changes made to a model (e.g. Task) elsewhere will be reflected in the ProjectsHierarchyView
-        AppObservable.getInstance().addObserver(this);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Project);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Task);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Component);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Asset);
     }
     
     /**
-     * Populates the JTree
+     * Loads a node's children in the background the first time it is expanded.
      * 
-     * Gets the projects for the current logged in user and iterates through it
-     * Gets all the tasks and components for each project 
-     * and generates nodes that are added to their project node as children
-     * The relevant assets for these tasks and components are added as their children
+     * @param node The node which is being expanded.
+     */
+    private void loadChildren(DefaultMutableTreeNode node) {
+        if (treeModel.getChildrenKey(node) != null && treeModel.startLoading(node)) {
+            DataExecutor.getInstance().execute(new LoadChildrenTask(node));
+        }
+    }
+    
+    /**
+     * Loads the children of a node on the data thread and then adds them to the tree.
+     */
+    class LoadChildrenTask extends BackgroundTask<List<Object>> {
+        private final DefaultMutableTreeNode node;
+        private final ProjectsHierarchyTreeModel.ChildrenKey key;
+        
+        LoadChildrenTask(DefaultMutableTreeNode node) {
+            this.node = node;
+            this.key = treeModel.getChildrenKey(node);
+        }
+        
+        @Override
+        protected List<Object> doInBackground() {
+            return treeModel.loadChildren(key);
+        }
+        
+        @Override
+        protected void succeeded(List<Object> children) {
+            if (treeModel.contains(node)) {
+                treeModel.setChildren(node, children);
+            }
+        }
+    }
+    
+    /**
+     * Reloads the children of the given nodes on the data thread and then updates
+     * them in the tree, which keeps the nodes that are expanded and selected.
      * 
-     * A new TreeModel is generated from the rootNode and this new model is set as the JTree's model
+     * The selected asset's details are then updated as well.
      */
-    private void refreshView() {
-       // All the projects that the current logged in user has access to
-       SetOfProjects projects = Project.getProjectsForUser(currentUser);
-       
-       DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode("Projects");
-       
-       if (projects != null) {
-            for (Project project : projects) {
-                // Create Project node
-                DefaultMutableTreeNode projectNode = new DefaultMutableTreeNode(project);
-                
-                // Get all tasks for project node
-                SetOfTasks tasks = project.getTasks();
-                DefaultMutableTreeNode taskRootNode = new DefaultMutableTreeNode("Tasks");
-                
-                if (tasks != null) {
-                    for (Task task : tasks) {
-                        DefaultMutableTreeNode taskNode = new DefaultMutableTreeNode(task);
-
-                        // Get all assets for task node
-                        SetOfAssets assets = task.getAssets();
-                        if (assets != null) {
-                            for (Asset taskAsset : assets) {
-                                taskNode.add(new DefaultMutableTreeNode(taskAsset));
-                            }
-                        }
-                        
-                        taskRootNode.add(taskNode);
-                    }
-                    projectNode.add(taskRootNode);
-                }
-                
-                DefaultMutableTreeNode comRootNode = new DefaultMutableTreeNode("Components");
-                
-                //Get all components for project node
-                SetOfComponents coms = project.getComponents();
-                if (coms != null) {
-                    for (Component com : coms) {
-                        DefaultMutableTreeNode comNode = new DefaultMutableTreeNode(com);
-                        
-                        //Get all assets for component node
-                        SetOfAssets assets = com.getAssets();
-                        if (assets != null) {
-                            for (Asset compAsset : assets) {
-                                comNode.add(new DefaultMutableTreeNode(compAsset));
-                            }
-                        }
-                        comRootNode.add(comNode);
-                    }
-                    projectNode.add(comRootNode);
+    class RefreshTreeTask extends BackgroundTask<List<List<Object>>> {
+        private final List<DefaultMutableTreeNode> nodes;
+        private final List<ProjectsHierarchyTreeModel.ChildrenKey> keys = new ArrayList<>();
+        private final Project project = selectedProject;
+        private final Asset selectedAsset = asset;
+        private AssetDetail assetDetail = null;
+        
+        RefreshTreeTask(List<DefaultMutableTreeNode> nodes) {
+            this.nodes = nodes;
+            for (DefaultMutableTreeNode node : nodes) {
+                keys.add(treeModel.getChildrenKey(node));
+            }
+        }
+        
+        @Override
+        protected List<List<Object>> doInBackground() {
+            List<List<Object>> children = new ArrayList<>();
+            for (ProjectsHierarchyTreeModel.ChildrenKey key : keys) {
+                children.add(treeModel.loadChildren(key));
+            }
+            if (selectedAsset != null && project != null) {
+                // Ensures that asset is up-to-date
+                   /* Asset.getAssetByID checks a static SetOfAssets
+                      which is kept up to date as models are saved */
+                assetDetail = loadAssetDetail(project, Asset.getAssetByID(selectedAsset.getId()));
+            }
+            return children;
+        }
+        
+        @Override
+        protected void succeeded(List<List<Object>> children) {
+            for (int i = 0; i < nodes.size(); i++) {
+                // A node may have been removed by the update of its parent
+                if (treeModel.contains(nodes.get(i))) {
+                    treeModel.setChildren(nodes.get(i), children.get(i));
                 }
-                rootNode.add(projectNode);
             }
-
-            DefaultTreeModel newModel = new DefaultTreeModel(rootNode);
-            view.setTreeModel(newModel);
-       }
+            // Only if the same asset is still selected
+            if (assetDetail != null && asset == selectedAsset && selectedProject == project) {
+                showAssetDetail(assetDetail);
+            }
+        }
     }
     
    /**
+    * Updates the parts of the tree (and the selected asset's details) which show
+    * a Project, Task, Component or Asset that has changed.
     * 
-    * @param o
-    * @param o1 
+    * @param event The changes which were made.
     */
     @Override
-    public void update(Observable o, Object o1) {       
-        refreshView();
-        // Ensures that asset is up-to-date
-           /* Asset.getAssetByID checks a static SetOfAssets
-              which has just been repopulated from the database */
-        this.asset = Asset.getAssetByID(this.asset.getId());
+    public void modelChanged(ModelChangeEvent event) {
+        List<DefaultMutableTreeNode> nodes = treeModel.getNodesAffectedBy(event);
+        if (!nodes.isEmpty() || asset != null) {
+            DataExecutor.getInstance().execute(new RefreshTreeTask(nodes));
+        }
+    }
+    
+    /**
+     * The selected asset, with the tasks and components of the selected project
+     * that it can be added to or removed from.
+     */
+    static class AssetDetail {
+        private final Asset asset;
+        private final SetOfTasks removeTasks = new SetOfTasks();
+        private final SetOfTasks addTasks = new SetOfTasks();
+        private final SetOfComponents removeComps = new SetOfComponents();
+        private final SetOfComponents addComps = new SetOfComponents();
         
-        // Populates the controls on the right of the split pane which the selected assets information
-        updateAssetDetail();
+        AssetDetail(Asset asset) {
+            this.asset = asset;
+        }
     }
     
     /**
-     * Populates the panel on the right of the scroll pane with the selected Asset details
-     * 
      * Gets tasks that the assets is on within the project 
      * and the components that is is connected to within the project
+     * 
+     * This reads the project's tasks and components, and their assets, from the
+     * database, so it is called on the data thread.
+     * 
+     * @param project The selected project
+     * @param asset The selected asset
+     * @return The asset's details
      */
-    public void updateAssetDetail() {
-        
-        // Labels showing what project and asset is currently selected
-        view.setProjectDetails(selectedProject.toString());
-        view.setAssetDetails(asset.toString());
+    private static AssetDetail loadAssetDetail(Project project, Asset asset) {
+        AssetDetail detail = new AssetDetail(asset);
         
-        // Controls can be used as an asset has been selected
-        view.setControlsEnabled(true);
-
         // Only retrieve the tasks and components for the selected project
-        SetOfTasks tasks = selectedProject.getTasks();
-        SetOfComponents comps = selectedProject.getComponents();
-
-        SetOfTasks removeTasks = new SetOfTasks();
-        SetOfTasks addTasks = new SetOfTasks();
-        SetOfComponents removeComps = new SetOfComponents();
-        SetOfComponents addComps = new SetOfComponents();
-
+        SetOfTasks tasks = project.getTasks();
+        SetOfComponents comps = project.getComponents();
 
         // Populate Task ComboBoxes
         for (Task task : tasks) {
            SetOfAssets taskAssets = task.getAssets();
            if (taskAssets.contains(asset))
-               removeTasks.add(task);
+               detail.removeTasks.add(task);
            else
-               addTasks.add(task);
+               detail.addTasks.add(task);
         }
 
         // Populate Component ComboBoxes
         for (Component comp : comps) {
            SetOfAssets compAssets = comp.getAssets();
            if (compAssets.contains(asset))
-               removeComps.add(comp);
+               detail.removeComps.add(comp);
            else
-               addComps.add(comp);
+               detail.addComps.add(comp);
+        }
+        
+        return detail;
+    }
+    
+    /**
+     * Loads the selected asset's details on the data thread and then shows them.
+     */
+    class LoadAssetDetailTask extends BackgroundTask<AssetDetail> {
+        private final Project project = selectedProject;
+        private final Asset selectedAsset = asset;
+        
+        @Override
+        protected AssetDetail doInBackground() {
+            return loadAssetDetail(project, selectedAsset);
+        }
+        
+        @Override
+        protected void succeeded(AssetDetail detail) {
+            showAssetDetail(detail);
+        }
+    }
+    
+    /**
+     * Populates the panel on the right of the scroll pane with the selected Asset
+     * details, which are loaded in the background first.
+     */
+    public void updateAssetDetail() {
+        // A detail which is still loading is for an asset which is no longer selected
+        if (assetDetailTask != null) {
+            assetDetailTask.cancel(false);
         }
+        assetDetailTask = new LoadAssetDetailTask();
+        DataExecutor.getInstance().execute(assetDetailTask);
+    }
+    
+    private void showAssetDetail(AssetDetail detail) {
+        asset = detail.asset;
+        
+        // Labels showing what project and asset is currently selected
+        view.setProjectDetails(selectedProject.toString());
+        view.setAssetDetails(asset.toString());
+        
+        // Controls can be used as an asset has been selected
+        view.setControlsEnabled(true);
 
         // Controls will only be enabled if there is a task(s)/component(s) to be displayed
-        view.removeTasksEnabled(removeTasks.size() > 0);
-        view.setRemoveTasksComboBox(removeTasks.toArray());
+        view.removeTasksEnabled(detail.removeTasks.size() > 0);
+        view.setRemoveTasksComboBox(detail.removeTasks.toArray());
 
-        view.addTasksEnabled(addTasks.size() > 0);
-        view.setAddtoTasksComboBox(addTasks.toArray());
+        view.addTasksEnabled(detail.addTasks.size() > 0);
+        view.setAddtoTasksComboBox(detail.addTasks.toArray());
 
-        view.removeComponentsEnabled(removeComps.size() > 0);
-        view.setRemoveComponentsComboBox(removeComps.toArray());
+        view.removeComponentsEnabled(detail.removeComps.size() > 0);
+        view.setRemoveComponentsComboBox(detail.removeComps.toArray());
 
-        view.addComponentsEnabled(addComps.size() > 0);
-        view.setAddtoComponentsComboBox(addComps.toArray());
+        view.addComponentsEnabled(detail.addComps.size() > 0);
+        view.setAddtoComponentsComboBox(detail.addComps.toArray());
 
         view.setControlsVisible(true);
     }
     
     
+    /**
+     * Triggered when a node of the JTree is about to be expanded
+     * 
+     * Loads the node's children if this is the first time it has been expanded
+     */
+    class ProjectsTreeWillExpandListener implements TreeWillExpandListener {
+        @Override
+        public void treeWillExpand(TreeExpansionEvent e) {
+            loadChildren((DefaultMutableTreeNode) e.getPath().getLastPathComponent());
+        }
+        
+        @Override
+        public void treeWillCollapse(TreeExpansionEvent e) {
+            // Collapsed nodes keep their children, so they are kept up to date
+        }
+    }
+    
     /**
      * Triggered when a node is selected within the JTree
      * 
@@ -243,6 +344,11 @@ public class ProjectsHierarchyController implements Observer {
                     }
                 } 
                 else {
+                    // Any asset detail still loading is no longer wanted
+                    if (assetDetailTask != null) {
+                        assetDetailTask.cancel(false);
+                    }
+                    asset = null;
                     view.setControlsEnabled(false);
                     view.setControlsVisible(false);
                 }     
@@ -263,7 +369,7 @@ public class ProjectsHierarchyController implements Observer {
                 SetOfAssets tasksAssets = selectedTask.getAssets();
                 tasksAssets.add(asset);
                 selectedTask.setAssets(tasksAssets);
-                selectedTask.save();
+                DataExecutor.getInstance().execute(new SaveTask(selectedTask));
             }
             
         }
@@ -281,7 +387,7 @@ public class ProjectsHierarchyController implements Observer {
                 SetOfAssets tasksAssets = selectedTask.getAssets();
                 tasksAssets.remove(asset);
                 selectedTask.setAssets(tasksAssets);
-                selectedTask.save();
+                DataExecutor.getInstance().execute(new SaveTask(selectedTask));
             }
         }
     }
@@ -298,7 +404,7 @@ public class ProjectsHierarchyController implements Observer {
                 SetOfAssets componentAssets = selectedComponent.getAssets();
                 componentAssets.add(asset);
                 selectedComponent.setAssets(componentAssets);
-                selectedComponent.save();
+                DataExecutor.getInstance().execute(new SaveTask(selectedComponent));
             }
         }
     }
@@ -315,8 +421,19 @@ public class ProjectsHierarchyController implements Observer {
                 SetOfAssets componentAssets = selectedComponent.getAssets();
                 componentAssets.remove(asset);
                 selectedComponent.setAssets(componentAssets);
-                selectedComponent.save();
+                DataExecutor.getInstance().execute(new SaveTask(selectedComponent));
             }
         }
     }
+    
+    /**
+     * Window listener for the view. Stops this controller observing AppObservable
+     * once the view has been closed.
+     */
+    class ViewWindowListener extends WindowAdapter {
+        @Override
+        public void windowClosed(WindowEvent e) {
+            AppObservable.getInstance().unsubscribe(ProjectsHierarchyController.this);
+        }
+    }
 }
@@ -0,0 +1,384 @@
+package Controllers;
+
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Models.Asset;
+import Models.Component;
+import Models.Project;
+import Models.SetOfProjects;
+import Models.Task;
+import Models.User;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+
+/**
+ * The tree shown by ProjectsHierarchyView: the current user's Projects, each with
+ * a "Tasks" and a "Components" node, the Tasks and Components of the Project
+ * under these, and the Assets of each Task or Component under it.
+ *
+ * The tree is loaded lazily. A node's children are only loaded (see
+ * loadChildren()) when it is first expanded, so opening the view only loads the
+ * list of Projects. Once loaded, a node's children are updated in place by
+ * setChildren(), which keeps the nodes of the models which are still there and
+ * fires an event for each node inserted, removed or changed, so the tree keeps
+ * which nodes are expanded and selected.
+ *
+ * The nodes must only be read and changed on the event dispatch thread; only
+ * loadChildren() is called on the data thread.
+ */
+public class ProjectsHierarchyTreeModel extends DefaultTreeModel {
+    private static final long serialVersionUID = 1L;
+    
+    public static final String TASKS = "Tasks";
+    public static final String COMPONENTS = "Components";
+
+    /**
+     * What a node's children are, which is decided by the node's position in the tree.
+     */
+    public enum Contents { Projects, ProjectTasks, ProjectComponents, TaskAssets, ComponentAssets }
+
+    private final User user;
+
+    /**
+     * @param user The user whose Projects are shown.
+     */
+    public ProjectsHierarchyTreeModel(User user) {
+        // Nodes which have not been loaded yet are shown as expandable, as they allow children
+        super(new HierarchyNode("Projects", true), true);
+        this.user = user;
+    }
+
+    /**
+     * Says what a node's children are and which model they belong to, so that they
+     * can be loaded on the data thread without reading the node.
+     */
+    public static class ChildrenKey {
+        private final Contents contents;
+        private final int ownerId;
+
+        private ChildrenKey(Contents contents, int ownerId) {
+            this.contents = contents;
+            this.ownerId = ownerId;
+        }
+
+        public Contents getContents() {
+            return contents;
+        }
+
+        public int getOwnerId() {
+            return ownerId;
+        }
+    }
+
+    /**
+     * A node which remembers whether its children have been loaded yet.
+     */
+    private static class HierarchyNode extends DefaultMutableTreeNode {
+        private static final long serialVersionUID = 1L;
+        
+        private boolean loaded = false;
+        private boolean loading = false;
+
+        HierarchyNode(Object userObject, boolean allowsChildren) {
+            super(userObject, allowsChildren);
+        }
+    }
+
+    /**
+     * Gets which of a node's children need loading.
+     *
+     * @param node A node of this tree.
+     * @return The key of the node's children, or null if the node has none to load
+     * (an Asset, or a Project, whose "Tasks" and "Components" nodes are always there).
+     */
+    public ChildrenKey getChildrenKey(DefaultMutableTreeNode node) {
+        Object userObject = node.getUserObject();
+        if (node == root) {
+            return new ChildrenKey(Contents.Projects, 0);
+        }
+        else if (userObject instanceof Task) {
+            return new ChildrenKey(Contents.TaskAssets, ((Task)userObject).getId());
+        }
+        else if (userObject instanceof Component) {
+            return new ChildrenKey(Contents.ComponentAssets, ((Component)userObject).getId());
+        }
+        else if (node.getParent() != null && ((DefaultMutableTreeNode)node.getParent()).getUserObject() instanceof Project) {
+            int projectId = ((Project)((DefaultMutableTreeNode)node.getParent()).getUserObject()).getId();
+            return new ChildrenKey(TASKS.equals(userObject) ? Contents.ProjectTasks : Contents.ProjectComponents, projectId);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the models to show as the children of a node. Called on the data thread.
+     *
+     * @param key The key of the node's children.
+     * @return The models, in order.
+     */
+    public List<Object> loadChildren(ChildrenKey key) {
+        List<Object> children = new ArrayList<>();
+        switch (key.getContents()) {
+            case Projects:
+                SetOfProjects projects = Project.getProjectsForUser(user);
+                if (projects != null) {
+                    children.addAll(projects);
+                }
+                break;
+            case ProjectTasks:
+                Project project = Project.getProjectById(key.getOwnerId());
+                if (project != null) {
+                    children.addAll(project.getTasks());
+                }
+                break;
+            case ProjectComponents:
+                project = Project.getProjectById(key.getOwnerId());
+                if (project != null) {
+                    children.addAll(project.getComponents());
+                }
+                break;
+            case TaskAssets:
+                Task task = Task.getTaskByID(key.getOwnerId());
+                if (task != null) {
+                    children.addAll(task.getAssets());
+                }
+                break;
+            case ComponentAssets:
+                Component component = Component.getComponentByID(key.getOwnerId());
+                if (component != null) {
+                    children.addAll(component.getAssets());
+                }
+                break;
+        }
+        return children;
+    }
+
+    public boolean isLoaded(DefaultMutableTreeNode node) {
+        return ((HierarchyNode)node).loaded;
+    }
+
+    /**
+     * Marks a node as being loaded, so that expanding it again does not start
+     * another load.
+     *
+     * @param node A node of this tree.
+     * @return true if the node still needs loading, false if it has been loaded or
+     * is already being loaded.
+     */
+    public boolean startLoading(DefaultMutableTreeNode node) {
+        HierarchyNode hierarchyNode = (HierarchyNode)node;
+        if (hierarchyNode.loaded || hierarchyNode.loading) {
+            return false;
+        }
+        hierarchyNode.loading = true;
+        return true;
+    }
+
+    /**
+     * @param node A node.
+     * @return true if the node is still in this tree (it may have been removed while
+     * its children were being loaded).
+     */
+    public boolean contains(DefaultMutableTreeNode node) {
+        return node.getRoot() == root;
+    }
+
+    /**
+     * Gets the nodes whose children have been loaded, i.e. those which have to be
+     * kept up to date.
+     *
+     * @return The loaded nodes, parents before their children.
+     */
+    public List<DefaultMutableTreeNode> getLoadedNodes() {
+        List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        Enumeration<?> all = ((DefaultMutableTreeNode)root).breadthFirstEnumeration();
+        while (all.hasMoreElements()) {
+            DefaultMutableTreeNode node = (DefaultMutableTreeNode)all.nextElement();
+            if (isLoaded(node) && getChildrenKey(node) != null) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Shows the given models as a node's children. Children whose model is still
+     * there keep their node (and so whether they are expanded or selected), with the
+     * model replaced by the given instance; the other children are removed and new
+     * nodes inserted for the new models. An event is fired for each change.
+     *
+     * @param node A node of this tree.
+     * @param models The models to show, in order.
+     */
+    public void setChildren(DefaultMutableTreeNode node, List<Object> models) {
+        HierarchyNode parent = (HierarchyNode)node;
+        parent.loaded = true;
+        parent.loading = false;
+
+        Set<String> keys = new HashSet<>();
+        for (Object model : models) {
+            keys.add(keyOf(model));
+        }
+
+        // Remove the children whose model has gone
+        for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+            DefaultMutableTreeNode child = (DefaultMutableTreeNode)parent.getChildAt(i);
+            if (!keys.contains(keyOf(child.getUserObject()))) {
+                removeChild(parent, i);
+            }
+        }
+
+        // A model may be linked more than once (e.g. an Asset added to a Task twice)
+        Map<String, LinkedList<DefaultMutableTreeNode>> existing = new HashMap<>();
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            DefaultMutableTreeNode child = (DefaultMutableTreeNode)parent.getChildAt(i);
+            String key = keyOf(child.getUserObject());
+            if (!existing.containsKey(key)) {
+                existing.put(key, new LinkedList<DefaultMutableTreeNode>());
+            }
+            existing.get(key).add(child);
+        }
+
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < models.size(); i++) {
+            Object model = models.get(i);
+            LinkedList<DefaultMutableTreeNode> nodes = existing.get(keyOf(model));
+            DefaultMutableTreeNode child = (nodes != null ? nodes.poll() : null);
+            if (child == null) {
+                parent.insert(createNode(model), i);
+                nodesWereInserted(parent, new int[] { i });
+                continue;
+            }
+            int index = parent.getIndex(child);
+            if (index != i) {
+                // The model has moved, so its node is moved to its new position
+                removeChild(parent, index);
+                parent.insert(child, i);
+                nodesWereInserted(parent, new int[] { i });
+            }
+            else {
+                changed.add(i);
+            }
+            child.setUserObject(model);
+        }
+
+        // Any children left over are extra nodes of a model which is now linked fewer times
+        while (parent.getChildCount() > models.size()) {
+            removeChild(parent, parent.getChildCount() - 1);
+        }
+
+        if (!changed.isEmpty()) {
+            int[] indices = new int[changed.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = changed.get(i);
+            }
+            // Repaints the kept children, in case their model (e.g. a Task's title) has changed
+            nodesChanged(parent, indices);
+        }
+
+        if (parent.getChildCount() == 0) {
+            // So the tree shows it has nothing to expand
+            nodeChanged(parent);
+        }
+    }
+
+    /**
+     * Gets the loaded nodes whose children may have changed: those whose children
+     * belong to a changed model (e.g. a changed Task's Assets) and those with a
+     * changed model among their children, which must be repainted.
+     *
+     * @param event The changes which were made.
+     * @return The nodes to reload, parents before their children.
+     */
+    public List<DefaultMutableTreeNode> getNodesAffectedBy(ModelChangeEvent event) {
+        List<DefaultMutableTreeNode> loadedNodes = getLoadedNodes();
+        if (event.isFullRefresh()) {
+            return loadedNodes;
+        }
+
+        Set<String> changedModels = new HashSet<>();
+        for (ModelChange change : event.getChanges()) {
+            changedModels.add(change.getEntityType() + " " + change.getId());
+        }
+
+        List<DefaultMutableTreeNode> nodes = new ArrayList<>();
+        for (DefaultMutableTreeNode node : loadedNodes) {
+            if (isAffected(getChildrenKey(node), event) || hasChildIn(node, changedModels)) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    private boolean isAffected(ChildrenKey key, ModelChangeEvent event) {
+        switch (key.getContents()) {
+            case Projects:
+                return event.affects(ModelChange.EntityType.Project);
+            case ProjectTasks:
+            case ProjectComponents:
+                return event.affects(ModelChange.EntityType.Project, key.getOwnerId());
+            case TaskAssets:
+                return event.affects(ModelChange.EntityType.Task, key.getOwnerId());
+            case ComponentAssets:
+                return event.affects(ModelChange.EntityType.Component, key.getOwnerId());
+        }
+        return false;
+    }
+
+    private boolean hasChildIn(DefaultMutableTreeNode node, Set<String> models) {
+        for (int i = 0; i < node.getChildCount(); i++) {
+            DefaultMutableTreeNode child = (DefaultMutableTreeNode)node.getChildAt(i);
+            if (models.contains(keyOf(child.getUserObject()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets a key identifying a model, which stays the same when the model is reloaded.
+     *
+     * @param model A Project, Task, Component or Asset, or the label of a node.
+     * @return The model's type and ID, e.g. "Task 12", as in a ModelChange.
+     */
+    public static String keyOf(Object model) {
+        if (model instanceof Project) {
+            return "Project " + ((Project)model).getId();
+        }
+        else if (model instanceof Task) {
+            return "Task " + ((Task)model).getId();
+        }
+        else if (model instanceof Component) {
+            return "Component " + ((Component)model).getId();
+        }
+        else if (model instanceof Asset) {
+            return "Asset " + ((Asset)model).getId();
+        }
+        return String.valueOf(model);
+    }
+
+    private void removeChild(DefaultMutableTreeNode parent, int index) {
+        DefaultMutableTreeNode child = (DefaultMutableTreeNode)parent.getChildAt(index);
+        parent.remove(index);
+        nodesWereRemoved(parent, new int[] { index }, new Object[] { child });
+    }
+
+    private DefaultMutableTreeNode createNode(Object model) {
+        if (model instanceof Project) {
+            // A Project's own children are always its "Tasks" and "Components" nodes
+            HierarchyNode projectNode = new HierarchyNode(model, true);
+            projectNode.add(new HierarchyNode(TASKS, true));
+            projectNode.add(new HierarchyNode(COMPONENTS, true));
+            projectNode.loaded = true;
+            return projectNode;
+        }
+        return new HierarchyNode(model, !(model instanceof Asset));
+    }
+}
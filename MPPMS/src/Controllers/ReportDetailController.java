@@ -1,6 +1,12 @@
 package Controllers;
 
 import Application.AppObservable;
+import Application.BackgroundTask;
+import Application.DataExecutor;
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Application.ModelChangeListener;
+import Application.SaveTask;
 import Models.Comment;
 import Models.Report;
 import Models.User;
@@ -8,11 +14,11 @@ import Views.ReportDetailView;
 import java.awt.Cursor;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Observable;
-import java.util.Observer;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.event.ListSelectionEvent;
@@ -24,11 +30,12 @@ import javax.swing.event.ListSelectionListener;
  * @see AppObservable
  * @see ReportDetailView
  */
-public class ReportDetailController implements Observer { 
+public class ReportDetailController implements ModelChangeListener { 
     private final ReportDetailView view = new ReportDetailView();
     private final User currentUser;
     
     private boolean isNewComment;    
+    private boolean saving = false;
     private Report report;
     private Comment selectedComment;
     
@@ -59,6 +66,7 @@ public class ReportDetailController implements Observer {
         view.addDiscardButtonActionListener(new DiscardChangesActionListener());
         view.addSaveButtonActionListener(new SaveCommentChangesActionListener());
         view.addNewCommentActionListener(new NewCommentActionListener());
+        view.addWindowListener(new ViewWindowListener());
         
         view.setVisible(true);
         
@@ -68,7 +76,7 @@ public class ReportDetailController implements Observer {
          * Craig - TC B2c: Real time updates
          * Register this controller as an observer
          */
-        AppObservable.getInstance().addObserver(this);
+        AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Report, this.report.getId());
     }
     
     /**
@@ -120,11 +128,32 @@ public class ReportDetailController implements Observer {
     }
     
     @Override
-    public void update(Observable o, Object o1) { 
-        int index = this.view.getSelectedIndex();
-        this.report = Report.getReportByID(this.report.getId());
-        this.view.setComments(this.report.getComments().toArray());
-        this.view.setSelectedIndex(index);
+    public void modelChanged(ModelChangeEvent event) {
+        final int id = this.report.getId();
+        DataExecutor.getInstance().execute(new BackgroundTask<Report>() {
+            @Override
+            protected Report doInBackground() {
+                Report reloaded = Report.getReportByID(id);
+                // Loaded here rather than on the event dispatch thread
+                if (reloaded != null) {
+                    reloaded.getComments();
+                }
+                return reloaded;
+            }
+            
+            @Override
+            protected void succeeded(Report reloaded) {
+                if (reloaded == null) {
+                    // The Report has been deleted
+                    view.dispose();
+                    return;
+                }
+                int index = view.getSelectedIndex();
+                report = reloaded;
+                view.setComments(report.getComments().toArray());
+                view.setSelectedIndex(index);
+            }
+        });
     }
     
     /**
@@ -169,7 +198,10 @@ public class ReportDetailController implements Observer {
     class SaveCommentChangesActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent ae) {
-            if (validateUserInputs()) {
+            // Ignore clicks made before an earlier save has finished
+            if (!saving && validateUserInputs()) {
+                saving = true;
+                view.setSaving(true);
                 view.setCursor(new Cursor(Cursor.WAIT_CURSOR));
 
                 if (isNewComment)
@@ -178,27 +210,43 @@ public class ReportDetailController implements Observer {
                      * Create a new comment and add it to the report, then save the
                      * report which will also save the comments is contains.
                      */                    
-                    Report tempReport = report;
-                    Comment tempComment = selectedComment;
+                    final Comment newComment = selectedComment;
+                    final Report edited = report;
 
-                    selectedComment.setContent(view.getContent());
-                    selectedComment.setDate(new Date());
-                    selectedComment.setUser(currentUser);
+                    newComment.setContent(view.getContent());
+                    newComment.setDate(new Date());
+                    newComment.setUser(currentUser);
 
-                    report.addComment(selectedComment);
                     isNewComment = false;
 
-                    if (report.save()) {
-                        // Success
-                        view.setEditMode(false);
-                    }
-                    else {
-                        // Failure
-                        isNewComment = true;
-                        report = tempReport;
-                        selectedComment = tempComment;
-                        JOptionPane.showMessageDialog(view, "Error saving Report", "'Report' Error", JOptionPane.ERROR_MESSAGE);
-                    }
+                    DataExecutor.getInstance().execute(new SaveTask(edited) {
+                        @Override
+                        protected void applyChanges() {
+                            edited.addComment(newComment);
+                        }
+                        
+                        @Override
+                        protected void revertChanges() {
+                            // Take the comment back out of the report
+                            edited.getComments().remove(newComment);
+                        }
+                        
+                        @Override
+                        protected void succeeded(Boolean saved) {
+                            if (saved) {
+                                // Success
+                                view.setEditMode(false);
+                            }
+                            else {
+                                // Failure
+                                isNewComment = true;
+                                JOptionPane.showMessageDialog(view, "Error saving Report", "'Report' Error", JOptionPane.ERROR_MESSAGE);
+                            }
+                            saving = false;
+                            view.setSaving(false);
+                            view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                        }
+                    });
                 }
                 else
                 {
@@ -213,29 +261,60 @@ public class ReportDetailController implements Observer {
                         if (comment.getId() == view.getSelectedComment().getId()) {
                             temp = comment;
                             selectedComment = comment;
-                            comment.setUser(currentUser);
-                            comment.setDate(new Date());
-                            comment.setContent(view.getContent());
                         }
                     }
 
-                    if (report.save()) {
-                        // Success
-                        view.setEditMode(false);
+                    final Comment editedComment = temp;
+                    if (editedComment == null) {
+                        saving = false;
+                        view.setSaving(false);
+                        view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                        return;
                     }
-                    else {
-                        // Failure
-                        for (Comment comment : report.getComments()) {
-                            if (comment.getId() == view.getSelectedComment().getId()) {
-                                comment = temp;
+                    
+                    final Date date = new Date();
+                    final String content = view.getContent();
+                    
+                    DataExecutor.getInstance().execute(new SaveTask(report) {
+                        // Kept so that the comment can be put back as it was if the save fails
+                        private User oldUser;
+                        private Date oldDate;
+                        private String oldContent;
+                        
+                        @Override
+                        protected void applyChanges() {
+                            oldUser = editedComment.getUser();
+                            oldDate = editedComment.getDate();
+                            oldContent = editedComment.getContent();
+                            
+                            editedComment.setUser(currentUser);
+                            editedComment.setDate(date);
+                            editedComment.setContent(content);
+                        }
+                        
+                        @Override
+                        protected void revertChanges() {
+                            editedComment.setUser(oldUser);
+                            editedComment.setDate(oldDate);
+                            editedComment.setContent(oldContent);
+                        }
+                        
+                        @Override
+                        protected void succeeded(Boolean saved) {
+                            if (saved) {
+                                // Success
+                                view.setEditMode(false);
+                            }
+                            else {
+                                // Failure
+                                JOptionPane.showMessageDialog(view, "Error saving Report", "'Report' Error", JOptionPane.ERROR_MESSAGE);
                             }
+                            saving = false;
+                            view.setSaving(false);
+                            view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
                         }
-                        selectedComment = temp;
-                        JOptionPane.showMessageDialog(view, "Error saving Report", "'Report' Error", JOptionPane.ERROR_MESSAGE);
-                    }
+                    });
                 }
-
-                view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
             }
         }
     }
@@ -252,4 +331,15 @@ public class ReportDetailController implements Observer {
             refreshView();
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Window listener for the view. Stops this controller observing AppObservable
+     * once the view has been closed.
+     */
+    class ViewWindowListener extends WindowAdapter {
+        @Override
+        public void windowClosed(WindowEvent e) {
+            AppObservable.getInstance().unsubscribe(ReportDetailController.this);
+        }
+    }
+}
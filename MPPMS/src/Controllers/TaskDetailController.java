@@ -1,6 +1,12 @@
 package Controllers;
 
 import Application.AppObservable;
+import Application.BackgroundTask;
+import Application.DataExecutor;
+import Application.ModelChange;
+import Application.ModelChangeEvent;
+import Application.ModelChangeListener;
+import Application.SaveTask;
 import Models.Asset;
 import Models.SetOfAssets;
 import Models.SetOfUsers;
@@ -13,8 +19,6 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Observable;
-import java.util.Observer;
 import javax.swing.DefaultListSelectionModel;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
@@ -27,7 +31,7 @@ import javax.swing.event.ListSelectionListener;
  * @see AppObservable
  * @see TaskDetailView
  */
-public class TaskDetailController implements Observer {
+public class TaskDetailController implements ModelChangeListener {
     private final TaskDetailView view;
     private final boolean canEdit;
     private final User currentUser;
@@ -35,6 +39,8 @@ public class TaskDetailController implements Observer {
     
     private Task task;
     private boolean isNew;
+    private boolean saving = false;
+    private boolean closed = false;
     
     private ModelChoiceController modelChoiceController;
     
@@ -62,10 +68,10 @@ public class TaskDetailController implements Observer {
      * Initialises the view and adds event listeners.
      */
     public void initialise() {
-        refreshView();
-        
         this.view.setEditMode(this.isNew, this.canEdit);
         this.view.setCanViewAsset(false);
+        // Nothing can be saved until the Task is shown
+        this.view.setSaving(true);
         
         this.view.addAssignedToChoiceActionListener(new AssignedToChoiceActionListener());
         this.view.addAssetChoiceActionListener(new AssetChoiceActionListener());
@@ -77,11 +83,58 @@ public class TaskDetailController implements Observer {
             this.view.addEditReportActionListener(new EditReportActionListener());
         }
         
-        /**
-         * Craig - TC B2c: Real time updates
-         * Register this controller as an observer
-         */
-        AppObservable.getInstance().addObserver(this);
+        DataExecutor.getInstance().execute(new LoadAssociationsTask());
+    }
+    
+    /**
+     * Loads the Task's Report, assigned Users and Assets on the DataExecutor, rather
+     * than leaving refreshView() to load them on the event dispatch thread, then
+     * shows the Task.
+     */
+    class LoadAssociationsTask extends BackgroundTask<Task> {
+        private final Task loading = task;
+        
+        @Override
+        protected Task doInBackground() {
+            loading.getReport();
+            loading.getAssignedTo();
+            loading.getAssets();
+            return loading;
+        }
+        
+        @Override
+        protected void succeeded(Task loaded) {
+            refreshView();
+            view.setSaving(false);
+            
+            /**
+             * Craig - TC B2c: Real time updates
+             * Register this controller as an observer
+             */
+            if (!isNew) {
+                subscribeToChanges();
+            }
+        }
+    }
+    
+    /**
+     * Subscribes this controller to changes to its Task and the Task's Report, unless
+     * it has been closed.
+     */
+    private void subscribeToChanges() {
+        if (!closed) {
+            AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Task, this.task.getId());
+            AppObservable.getInstance().subscribe(this, ModelChange.EntityType.Report, this.task.getReport().getId());
+        }
+    }
+    
+    /**
+     * Stops this controller observing AppObservable, once IndexController no longer
+     * shows its view.
+     */
+    public void close() {
+        closed = true;
+        AppObservable.getInstance().unsubscribe(this);
     }
     
     /**
@@ -125,10 +178,34 @@ public class TaskDetailController implements Observer {
     }
 
     @Override
-    public void update(Observable o, Object o1) {
+    public void modelChanged(ModelChangeEvent event) {
         if (!this.isNew) {
-            this.task = Task.getTaskByID(this.task.getId());
-            refreshView();
+            final int id = this.task.getId();
+            DataExecutor.getInstance().execute(new BackgroundTask<Task>() {
+                @Override
+                protected Task doInBackground() {
+                    Task reloaded = Task.getTaskByID(id);
+                    // Loaded here rather than by refreshView() on the event dispatch thread
+                    if (reloaded != null) {
+                        reloaded.getReport();
+                        reloaded.getAssignedTo();
+                        reloaded.getAssets();
+                    }
+                    return reloaded;
+                }
+                
+                @Override
+                protected void succeeded(Task reloaded) {
+                    if (reloaded == null) {
+                        // The Task has been deleted
+                        close();
+                        view.setVisible(false);
+                        return;
+                    }
+                    task = reloaded;
+                    refreshView();
+                }
+            });
         }
     }
     
@@ -148,7 +225,10 @@ public class TaskDetailController implements Observer {
     class SaveButtonActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            if (validateUserInputs()) {
+            // Ignore clicks made before an earlier save has finished
+            if (!saving && validateUserInputs()) {
+                saving = true;
+                view.setSaving(true);
                 view.setCursor(new Cursor(Cursor.WAIT_CURSOR));
                 
                 /*
@@ -157,63 +237,104 @@ public class TaskDetailController implements Observer {
                 generate a QA_Moderation task for this task (status changed to Completed
                 and this is a QC Task)
                 */
-                boolean canOfferAutoTaskGeneration = (task.getTaskType() == Task.TaskType.QC &&
+                final boolean canOfferAutoTaskGeneration = (task.getTaskType() == Task.TaskType.QC &&
                                                     task.getStatus() != (Task.Status)view.getStatus() && 
                                                     ((Task.Status)view.getStatus()) == Task.Status.Completed); 
                 
                 Object[] objects = view.getAssignedTo();
-                SetOfUsers assignedTo = new SetOfUsers();
+                final SetOfUsers assignedTo = new SetOfUsers();
                 for (Object object : objects) {
                     assignedTo.add((User)object);
                 }
 
                 objects = view.getAssets();
-                SetOfAssets assets = new SetOfAssets();
+                final SetOfAssets assets = new SetOfAssets();
                 for (Object object : objects) {
                     assets.add((Asset)object);
                 }
 
-                Task temp = task;
-
-                task.setTaskType(Task.TaskType.valueOf(view.getTaskType().toString()));
-                task.setTitle(view.getTaskTitle());            
-                task.setPriority(Task.Priority.valueOf(view.getPriority().toString()));
-                task.setStatus(Task.Status.valueOf(view.getStatus().toString()));
-                task.setAssignedTo(assignedTo);
-                task.setAssets(assets);
+                final Task edited = task;
+                final Task.TaskType taskType = Task.TaskType.valueOf(view.getTaskType().toString());
+                final String title = view.getTaskTitle();
+                final Task.Priority priority = Task.Priority.valueOf(view.getPriority().toString());
+                final Task.Status status = Task.Status.valueOf(view.getStatus().toString());
 
-                if (task.save()) {
-                    // Success
-                    /*
-                    Craig - TC B3b: Auto task creation
-                    Ask the user if they want the auto generation to take place
-                    and if so launch a Frame to prompt for which QC Team Leader
-                    should be assigned this task.
-                    */
-                    if (canOfferAutoTaskGeneration) {
-                        int result = JOptionPane.showConfirmDialog(view, 
-                                                "Generate a QA_Moderation Task now that this QC Task is completed?", 
-                                                "Automatic QA_Moderation Task Generation", 
-                                                JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
-                        if (result == JOptionPane.YES_OPTION) {
-                            ModerationTaskGeneratorController controller = new ModerationTaskGeneratorController(parentFrame, task.getId(), task.getAssets());
-                            controller.launch();
-                        }
+                DataExecutor.getInstance().execute(new SaveTask(edited) {
+                    // Kept so that the Task can be put back as it was if the save fails
+                    private Task.TaskType oldTaskType;
+                    private String oldTitle;
+                    private Task.Priority oldPriority;
+                    private Task.Status oldStatus;
+                    private SetOfUsers oldAssignedTo;
+                    private SetOfAssets oldAssets;
+                    
+                    @Override
+                    protected void applyChanges() {
+                        oldTaskType = edited.getTaskType();
+                        oldTitle = edited.getTitle();
+                        oldPriority = edited.getPriority();
+                        oldStatus = edited.getStatus();
+                        oldAssignedTo = edited.getAssignedTo();
+                        oldAssets = edited.getAssets();
+                        
+                        edited.setTaskType(taskType);
+                        edited.setTitle(title);
+                        edited.setPriority(priority);
+                        edited.setStatus(status);
+                        edited.setAssignedTo(assignedTo);
+                        edited.setAssets(assets);
                     }
                     
-                    if (modelChoiceController != null) {
-                        modelChoiceController.closeView();
+                    @Override
+                    protected void revertChanges() {
+                        edited.setTaskType(oldTaskType);
+                        edited.setTitle(oldTitle);
+                        edited.setPriority(oldPriority);
+                        edited.setStatus(oldStatus);
+                        edited.setAssignedTo(oldAssignedTo);
+                        edited.setAssets(oldAssets);
                     }
-                    view.setEditMode(false, canEdit);
-                    isNew = false;
-                }
-                else {
-                    // Failure
-                    task = temp;
-                    JOptionPane.showMessageDialog(view, "Error saving Task", "'Task' Error", JOptionPane.ERROR_MESSAGE);
-                }
+                    
+                    @Override
+                    protected void succeeded(Boolean saved) {
+                        if (saved) {
+                            // Success
+                            /*
+                            Craig - TC B3b: Auto task creation
+                            Ask the user if they want the auto generation to take place
+                            and if so launch a Frame to prompt for which QC Team Leader
+                            should be assigned this task.
+                            */
+                            if (canOfferAutoTaskGeneration) {
+                                int result = JOptionPane.showConfirmDialog(view, 
+                                                        "Generate a QA_Moderation Task now that this QC Task is completed?", 
+                                                        "Automatic QA_Moderation Task Generation", 
+                                                        JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+                                if (result == JOptionPane.YES_OPTION) {
+                                    ModerationTaskGeneratorController controller = new ModerationTaskGeneratorController(parentFrame, task.getId(), task.getAssets());
+                                    controller.launch();
+                                }
+                            }
+                    
+                            if (modelChoiceController != null) {
+                                modelChoiceController.closeView();
+                            }
+                            view.setEditMode(false, canEdit);
+                            if (isNew) {
+                                subscribeToChanges();
+                            }
+                            isNew = false;
+                        }
+                        else {
+                            // Failure
+                            JOptionPane.showMessageDialog(view, "Error saving Task", "'Task' Error", JOptionPane.ERROR_MESSAGE);
+                        }
                 
-                view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                        saving = false;
+                        view.setSaving(false);
+                        view.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+                    }
+                });
             }
         }        
     }
@@ -0,0 +1,235 @@
+package Data;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This singleton class holds a bounded pool of connections to the application's
+ * SQLite database. DatabaseConnector borrows a connection from here instead of
+ * opening a new one for every query, and hands it back when it is disposed.
+ *
+ * Idle connections are health checked before being handed out again and are
+ * closed by a background timer once they have been idle for too long.
+ *
+ * Each connection is set up using the ConnectionProfile chosen by the system
+ * properties as it is opened.
+ *
+ * @see DatabaseConnector
+ * @see ConnectionProfile
+ */
+public class ConnectionPool {
+    private static final int MAX_CONNECTIONS = 10;
+    private static final int MIN_IDLE_CONNECTIONS = 1;
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 10000;
+    private static final long IDLE_TIMEOUT_MILLIS = 60000;
+    private static final long VALIDATION_INTERVAL_MILLIS = 5000;
+
+    private static ConnectionPool instance = null;
+
+    private final String url;
+    private final ConnectionProfile profile = ConnectionProfile.fromSystemProperties();
+    private final ArrayDeque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private final Timer evictionTimer = new Timer("ConnectionPool-eviction", true);
+
+    private boolean closed = false;
+    private int totalConnections = 0;
+    private long connectionsCreated = 0;
+    private long connectionsEvicted = 0;
+    private long acquisitions = 0;
+    private long acquireTimeouts = 0;
+    private long failedHealthChecks = 0;
+
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null) {
+            instance = new ConnectionPool();
+        }
+        return instance;
+    }
+
+    private ConnectionPool() {
+        // Private constructor - Singleton pattern.
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException ex) {
+            Logger.getLogger(ConnectionPool.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        String path = getClass()
+                    .getClassLoader()
+                    .getResource("Data/MPPMSDatabase")
+                    .getPath()
+                    .replaceAll("%20", " ")
+                    .replaceAll("build/classes", "src");
+        this.url = "jdbc:sqlite:" + path;
+
+        evictionTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                evictIdleConnections();
+            }
+        }, IDLE_TIMEOUT_MILLIS / 2, IDLE_TIMEOUT_MILLIS / 2);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none are idle and
+     * the pool has not reached its maximum size. Blocks until a connection is
+     * released if the pool is exhausted.
+     *
+     * @return A healthy connection which must be handed back using release().
+     * @throws SQLException if the pool has been shut down, a connection could not
+     * be opened or none became available within the acquire timeout.
+     */
+    synchronized PooledConnection acquire() throws SQLException {
+        long deadline = System.currentTimeMillis() + ACQUIRE_TIMEOUT_MILLIS;
+
+        while (true) {
+            if (closed) {
+                throw new SQLException("The connection pool has been shut down");
+            }
+            while (!idleConnections.isEmpty()) {
+                PooledConnection pooled = idleConnections.pollFirst();
+
+                if (pooled.getIdleMillis() > VALIDATION_INTERVAL_MILLIS && !pooled.isHealthy()) {
+                    failedHealthChecks++;
+                    discard(pooled);
+                    continue;
+                }
+                acquisitions++;
+                return pooled;
+            }
+
+            if (totalConnections < MAX_CONNECTIONS) {
+                Connection connection = DriverManager.getConnection(url);
+                profile.apply(connection);
+                PooledConnection pooled = new PooledConnection(connection);
+                totalConnections++;
+                connectionsCreated++;
+                acquisitions++;
+                return pooled;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                acquireTimeouts++;
+                throw new SQLException("Timed out waiting for a database connection (" + MAX_CONNECTIONS + " in use)");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", ex);
+            }
+        }
+    }
+
+    /**
+     * Hands a borrowed connection back to the pool so that it can be reused, or
+     * closes it if the pool has been shut down.
+     *
+     * @param pooled The connection previously returned by acquire().
+     */
+    synchronized void release(PooledConnection pooled) {
+        if (!closed && pooled.reset()) {
+            pooled.markReleased();
+            idleConnections.offerFirst(pooled);
+        }
+        else {
+            discard(pooled);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Closes any connections which have been idle for longer than the idle timeout,
+     * always leaving at least the minimum number of idle connections open.
+     */
+    public synchronized void evictIdleConnections() {
+        Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+
+        while (iterator.hasNext() && idleConnections.size() > MIN_IDLE_CONNECTIONS) {
+            PooledConnection pooled = iterator.next();
+            if (pooled.getIdleMillis() > IDLE_TIMEOUT_MILLIS) {
+                iterator.remove();
+                discard(pooled);
+                connectionsEvicted++;
+            }
+        }
+    }
+
+    /**
+     * Closes every idle connection. Borrowed connections are closed as they are
+     * released, and no more connections can be acquired.
+     */
+    public synchronized void shutdown() {
+        closed = true;
+        while (!idleConnections.isEmpty()) {
+            discard(idleConnections.pollFirst());
+        }
+        evictionTimer.cancel();
+        // Wake any threads waiting for a connection so that they fail now
+        notifyAll();
+    }
+
+    public synchronized boolean isShutdown() {
+        return closed;
+    }
+
+    private void discard(PooledConnection pooled) {
+        pooled.close();
+        totalConnections--;
+    }
+
+    public ConnectionProfile getProfile() {
+        return profile;
+    }
+
+    public synchronized int getMaxConnections() {
+        return MAX_CONNECTIONS;
+    }
+
+    public synchronized int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public synchronized int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    public synchronized int getActiveConnections() {
+        return totalConnections - idleConnections.size();
+    }
+
+    public synchronized long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    public synchronized long getConnectionsEvicted() {
+        return connectionsEvicted;
+    }
+
+    public synchronized long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public synchronized long getAcquireTimeouts() {
+        return acquireTimeouts;
+    }
+
+    public synchronized long getFailedHealthChecks() {
+        return failedHealthChecks;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ConnectionPool (active: " + getActiveConnections() + ", idle: " + getIdleConnections()
+                + ", max: " + MAX_CONNECTIONS + ", created: " + connectionsCreated
+                + ", evicted: " + connectionsEvicted + ", acquisitions: " + acquisitions + ")";
+    }
+}
@@ -0,0 +1,132 @@
+package Data;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SQLite settings (PRAGMAs) applied to each connection as the ConnectionPool
+ * opens it. Two profiles are provided:
+ * <ul>
+ *   <li>tuned (the default): write-ahead logging, so that readers and the writer
+ *   no longer block each other, with synchronous=NORMAL (a commit only waits for
+ *   the log to be written, not synced, which is still safe against the application
+ *   crashing), a larger page cache and memory-mapped reads.</li>
+ *   <li>compatible: SQLite's own defaults (rollback journal, synchronous=FULL),
+ *   e.g. for a database kept on a network drive, where WAL does not work.</li>
+ * </ul>
+ * The profile is chosen using the mppms.db.profile system property, and any of its
+ * settings can be overridden individually using mppms.db.journalMode,
+ * mppms.db.synchronous, mppms.db.cacheSize (in KiB), mppms.db.mmapSize (in bytes)
+ * and mppms.db.tempStore. A setting which is not given is left at SQLite's default.
+ *
+ * @see ConnectionPool
+ */
+public class ConnectionProfile {
+    private static final String PROPERTY_PREFIX = "mppms.db.";
+
+    private final String name;
+    private final String journalMode;
+    private final String synchronous;
+    private final Integer cacheSizeKiB;
+    private final Long mmapSize;
+    private final String tempStore;
+
+    private ConnectionProfile(String name, String journalMode, String synchronous,
+            Integer cacheSizeKiB, Long mmapSize, String tempStore) {
+        this.name = name;
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.cacheSizeKiB = cacheSizeKiB;
+        this.mmapSize = mmapSize;
+        this.tempStore = tempStore;
+    }
+
+    public static ConnectionProfile tuned() {
+        return new ConnectionProfile("tuned", "WAL", "NORMAL", 16384, 268435456L, "MEMORY");
+    }
+
+    public static ConnectionProfile compatible() {
+        return new ConnectionProfile("compatible", null, null, null, null, null);
+    }
+
+    /**
+     * Gets the profile chosen by the system properties.
+     *
+     * @return The named profile (tuned if none or an unknown one is named), with any
+     * individual settings overridden.
+     */
+    public static ConnectionProfile fromSystemProperties() {
+        ConnectionProfile profile = tuned();
+        String profileName = System.getProperty(PROPERTY_PREFIX + "profile", profile.name);
+        if (profileName.equalsIgnoreCase("compatible")) {
+            profile = compatible();
+        }
+        else if (!profileName.equalsIgnoreCase(profile.name)) {
+            Logger.getLogger(ConnectionProfile.class.getName()).log(Level.WARNING,
+                    "Unknown connection profile {0}, using {1}", new Object[] { profileName, profile.name });
+        }
+
+        Integer cacheSize = Integer.getInteger(PROPERTY_PREFIX + "cacheSize");
+        Long mmapSize = Long.getLong(PROPERTY_PREFIX + "mmapSize");
+        return new ConnectionProfile(profile.name,
+                System.getProperty(PROPERTY_PREFIX + "journalMode", profile.journalMode),
+                System.getProperty(PROPERTY_PREFIX + "synchronous", profile.synchronous),
+                (cacheSize != null ? cacheSize : profile.cacheSizeKiB),
+                (mmapSize != null ? mmapSize : profile.mmapSize),
+                System.getProperty(PROPERTY_PREFIX + "tempStore", profile.tempStore));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Applies this profile's settings to a newly opened connection. This must be done
+     * outside of a transaction, as the journal mode cannot be changed inside one. A
+     * setting which SQLite rejects is logged and skipped, as the connection is still
+     * usable without it.
+     *
+     * @param connection The connection.
+     */
+    void apply(Connection connection) {
+        try (Statement statement = connection.createStatement()) {
+            if (journalMode != null) {
+                // Persistent: once one connection has switched to WAL, the database file stays in WAL mode
+                applyPragma(statement, "journal_mode", journalMode);
+            }
+            if (synchronous != null) {
+                applyPragma(statement, "synchronous", synchronous);
+            }
+            if (cacheSizeKiB != null) {
+                // A negative cache_size is a size in KiB rather than in pages
+                applyPragma(statement, "cache_size", String.valueOf(-Math.abs(cacheSizeKiB)));
+            }
+            if (mmapSize != null) {
+                // Ignored by versions of SQLite older than 3.7.17
+                applyPragma(statement, "mmap_size", String.valueOf(mmapSize));
+            }
+            if (tempStore != null) {
+                applyPragma(statement, "temp_store", tempStore);
+            }
+        } catch (SQLException ex) {
+            Logger.getLogger(ConnectionProfile.class.getName()).log(Level.WARNING, null, ex);
+        }
+    }
+
+    private void applyPragma(Statement statement, String pragma, String value) {
+        try {
+            statement.execute("PRAGMA " + pragma + " = " + value);
+        } catch (SQLException ex) {
+            Logger.getLogger(ConnectionProfile.class.getName()).log(Level.WARNING, "PRAGMA " + pragma + " = " + value, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " (journal_mode=" + journalMode + ", synchronous=" + synchronous + ", cache_size=" + cacheSizeKiB
+                + " KiB, mmap_size=" + mmapSize + ", temp_store=" + tempStore + ")";
+    }
+}
@@ -1,47 +1,134 @@
 package Data;
 
-import java.sql.Statement;
-import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Runs queries against the application's database. All queries are parameterised:
+ * values are bound to '?' placeholders rather than concatenated into the SQL, so
+ * each distinct query shape is parsed and planned once and then reused from the
+ * connection's prepared statement cache.
  *
  * @author Craig
+ * @see ConnectionPool
  */
 public class DatabaseConnector {
-    private Connection connection = null;
-    private Statement statement = null;
-    private ResultSet results = null;
-    private boolean success = false;
-    
+    private PooledConnection pooledConnection = null;
+    private boolean ownsConnection = false;
+    /**
+     * The results this connector has returned, each with the statement it came from.
+     */
+    private final LinkedHashMap<ResultSet, PreparedStatement> openResults = new LinkedHashMap<>();
+
     public DatabaseConnector() {
         createConnection();
     }
-    
-    public ResultSet selectQuery(String queryString) {
-        executeSelectStatement(queryString);        
-        return results;
+
+    /**
+     * Runs a SELECT query. The returned ResultSet remains valid until this connector
+     * is disposed, even if the same query is run again meanwhile (through this or
+     * any other connector).
+     *
+     * @param queryString The query, using '?' placeholders for any values.
+     * @param parameters The values to bind to the placeholders, in order.
+     * @return The query results, or null if the query failed.
+     */
+    public ResultSet selectQuery(String queryString, Object... parameters) {
+        try {
+            PreparedStatement statement = prepare(queryString, parameters);
+            ResultSet results;
+            try {
+                results = statement.executeQuery();
+            } catch (SQLException ex) {
+                pooledConnection.releaseStatement(statement);
+                throw ex;
+            }
+            pooledConnection.useStatement(statement);
+            openResults.put(results, statement);
+            return results;
+        } catch (SQLException ex) {
+            Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, queryString, ex);
+            return null;
+        }
     }
-    
-    public boolean insertQuery(HashMap<String, String> attributesAndValues) {
+
+    /**
+     * Loads every row of a link table in a single query and groups the linked values
+     * by parent ID, so that a model's links can be stitched together in memory rather
+     * than queried once per parent.
+     *
+     * @param table The link table (e.g. "PROJECTTASKS").
+     * @param parentIdFieldName The parent's ID field (e.g. "PROJECTID").
+     * @param linkFieldName The linked field (e.g. "TASKID").
+     * @return The linked values for each parent ID, in row order. Parents without
+     * links are absent. Empty if the query failed.
+     */
+    public HashMap<Integer, ArrayList<Object>> selectLinksQuery(String table, String parentIdFieldName, String linkFieldName) {
+        HashMap<Integer, ArrayList<Object>> links = new HashMap<>();
+        ResultSet results = selectQuery("SELECT " + parentIdFieldName + ", " + linkFieldName + " FROM " + table);
+        if (results == null) {
+            return links;
+        }
+        try {
+            while (results.next()) {
+                int parentId = results.getInt(1);
+                ArrayList<Object> linkedValues = links.get(parentId);
+                if (linkedValues == null) {
+                    linkedValues = new ArrayList<>();
+                    links.put(parentId, linkedValues);
+                }
+                linkedValues.add(results.getObject(2));
+            }
+        } catch (SQLException ex) {
+            Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        return links;
+    }
+
+    /**
+     * Runs an INSERT, UPDATE or DELETE statement.
+     *
+     * @param queryString The statement, using '?' placeholders for any values.
+     * @param parameters The values to bind to the placeholders, in order.
+     * @return true if the statement ran successfully, else false.
+     */
+    public boolean executeStatement(String queryString, Object... parameters) {
+        PreparedStatement statement = null;
+        try {
+            statement = prepare(queryString, parameters);
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException ex) {
+            Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, queryString, ex);
+            return false;
+        } finally {
+            if (statement != null) {
+                pooledConnection.releaseStatement(statement);
+            }
+        }
+    }
+
+    public boolean insertQuery(HashMap<String, Object> attributesAndValues) {
         String fields = "";
-        String values = "";
+        String placeholders = "";
         String table = "";
-        
-        for (Map.Entry<String, String> attrVal : attributesAndValues.entrySet()) {
+        ArrayList<Object> values = new ArrayList<>();
+
+        for (Map.Entry<String, Object> attrVal : attributesAndValues.entrySet()) {
             if (attrVal.getKey().equals("TABLENAME")) {
-                table = attrVal.getValue();
+                table = (String)attrVal.getValue();
             }
             else {
                 fields += attrVal.getKey() + ", ";
-                values += attrVal.getValue() + ", ";
+                placeholders += "?, ";
+                values.add(attrVal.getValue());
             }
         }
 
@@ -51,125 +138,366 @@ public class DatabaseConnector {
         queryString += " ( ";
         queryString += fields.substring(0, fields.length() - 2);
         queryString += " ) VALUES ( ";
-        queryString += values.substring(0, values.length() - 2);
+        queryString += placeholders.substring(0, placeholders.length() - 2);
         queryString += " )";
 
-        executeInsertStatement(queryString);
-            
-        return success;
+        return executeStatement(queryString, values.toArray());
     }
-    
-    public boolean updateQuery(HashMap<String, String> attributesAndValues) {
+
+    /**
+     * Inserts several rows into the same table as a single batch.
+     *
+     * @param rows One HashMap per row, each holding the TABLENAME and the same fields,
+     * as built by Model.getAttributesAndValues().
+     * @return true if every row was inserted successfully, else false.
+     * @see #insertQuery(HashMap)
+     */
+    public boolean insertAllQuery(ArrayList<HashMap<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return true;
+        }
+        ArrayList<String> fields = new ArrayList<>(rows.get(0).keySet());
+        fields.remove("TABLENAME");
+        String table = (String)rows.get(0).get("TABLENAME");
+
+        String fieldList = "";
+        String placeholders = "";
+        for (String field : fields) {
+            fieldList += field + ", ";
+            placeholders += "?, ";
+        }
+
+        ArrayList<Object[]> values = new ArrayList<>();
+        for (HashMap<String, Object> row : rows) {
+            Object[] rowValues = new Object[fields.size()];
+            for (int i = 0; i < rowValues.length; i++) {
+                rowValues[i] = row.get(fields.get(i));
+            }
+            values.add(rowValues);
+        }
+
+        String queryString = "";
+        queryString += "INSERT INTO ";
+        queryString += table;
+        queryString += " ( ";
+        queryString += fieldList.substring(0, fieldList.length() - 2);
+        queryString += " ) VALUES ( ";
+        queryString += placeholders.substring(0, placeholders.length() - 2);
+        queryString += " )";
+
+        return batchQuery(queryString, values);
+    }
+
+    /**
+     * Updates a row by ID, setting only the fields given.
+     *
+     * @param attributesAndValues The TABLENAME, the row's ID and the fields to set.
+     * @return true if the update ran successfully (or there was nothing to set),
+     * else false.
+     */
+    public boolean updateQuery(HashMap<String, Object> attributesAndValues) {
         String assignments = "";
         String table = "";
-        String where = "";
-        
-        for (Map.Entry<String, String> attrVal : attributesAndValues.entrySet()) {
+        Object id = null;
+        ArrayList<Object> values = new ArrayList<>();
+
+        for (Map.Entry<String, Object> attrVal : attributesAndValues.entrySet()) {
             switch (attrVal.getKey()) {
                 case "TABLENAME":
-                    table = attrVal.getValue();
+                    table = (String)attrVal.getValue();
                     break;
                 case "ID":
-                    where = attrVal.getKey() + " = " + attrVal.getValue();
+                    id = attrVal.getValue();
                     break;
                 default:
-                    assignments += attrVal.getKey() + " = " + attrVal.getValue() + ", ";
+                    assignments += attrVal.getKey() + " = ?, ";
+                    values.add(attrVal.getValue());
                     break;
             }
         }
+        if (values.isEmpty()) {
+            return true;
+        }
+        values.add(id);
 
         String queryString = "";
         queryString += "UPDATE ";
         queryString += table;
         queryString += " SET ";
         queryString += assignments.substring(0, assignments.length() - 2);
-        queryString += " WHERE ";
-        queryString += where;
+        queryString += " WHERE ID = ?";
 
-        executeUpdateStatement(queryString);
-            
-        return success;
+        return executeStatement(queryString, values.toArray());
+    }
+
+    /**
+     * Runs the same INSERT, UPDATE or DELETE statement once for each set of values,
+     * sending them to the database as a single JDBC batch.
+     *
+     * @param queryString The statement, using '?' placeholders for values.
+     * @param rows One array of values per execution of the statement.
+     * @return true if the whole batch ran successfully, else false.
+     */
+    public boolean batchQuery(String queryString, ArrayList<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return true;
+        }
+        PreparedStatement statement = null;
+        try {
+            statement = prepare(queryString, new Object[0]);
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setObject(i + 1, row[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            return true;
+        } catch (SQLException ex) {
+            Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, queryString, ex);
+            return false;
+        } finally {
+            if (statement != null) {
+                try {
+                    statement.clearBatch();
+                } catch (SQLException ex) {
+                    Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
+                }
+                pooledConnection.releaseStatement(statement);
+            }
+        }
     }
     
+    /**
+     * Rewrites link table rows for a parent model: deletes every row for the parent's 
+     * ID and then inserts all of the given links in a single batch.
+     *
+     * @param attributesAndValues One HashMap per link table, as built by
+     * Model.getInnerAttributesAndValues().
+     * @param parentModelName The parent model's name (e.g. "PROJECT"), used to find
+     * the parent's ID field (e.g. "PROJECTID").
+     * @return true if all rows were written successfully, else false.
+     * @see #updateLinksQuery(ArrayList, String)
+     */
     public boolean deleteAndInsertQuery(ArrayList<HashMap<String, Object>> attributesAndValues, String parentModelName) {
         boolean savedOK = true;
-        
+        String thisIdFieldName = parentModelName + "ID";
+
         for (HashMap<String, Object> hMap : attributesAndValues) {
             String table = (String)hMap.get("TABLENAME");
-            String thisIdFieldName = parentModelName + "ID";
-            String thisId = (String)hMap.get(thisIdFieldName);
-            
-            executeUpdateStatement("DELETE FROM " + table + " WHERE " + thisIdFieldName + " = " + thisId);
-            savedOK &= success;
-            
-            for (Map.Entry<String, Object> attrVal : hMap.entrySet()) {
-                if (!attrVal.getKey().equals("TABLENAME") && !attrVal.getKey().equals(thisIdFieldName)) {
-                    for (String linkId : (ArrayList<String>)attrVal.getValue()) {
-                        executeInsertStatement("INSERT INTO " + table + " VALUES ( " + thisId + ", " + linkId + " )");
-                        savedOK &= success;
-                    }
-                }
+            Object thisId = hMap.get(thisIdFieldName);
+            String linkFieldName = getLinkFieldName(hMap, thisIdFieldName);
+
+            savedOK &= executeStatement("DELETE FROM " + table + " WHERE " + thisIdFieldName + " = ?", thisId);
+
+            ArrayList<Object[]> rows = new ArrayList<>();
+            for (Object linkId : (ArrayList<?>)hMap.get(linkFieldName)) {
+                rows.add(new Object[]{ thisId, linkId });
             }
+            savedOK &= batchQuery("INSERT INTO " + table + " ( " + thisIdFieldName + ", " + linkFieldName + " ) VALUES ( ?, ? )", rows);
         }
         return savedOK;
     }
     
-    private void createConnection() {
-        try {
-            Class.forName("org.sqlite.JDBC").newInstance();
-        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
-            Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
+    /**
+     * Inserts the link table rows for several new parent models, with one batch per
+     * link table. As the parents are new, no rows are stored for them yet, so none
+     * are read or deleted first.
+     *
+     * @param attributesAndValues One HashMap per link table per parent, as built by
+     * Model.getInnerAttributesAndValues().
+     * @param parentModelName The parents' model name (e.g. "TASK"), used to find
+     * the parent's ID field (e.g. "TASKID").
+     * @return true if all rows were inserted successfully, else false.
+     * @see #updateLinksQuery(ArrayList, String)
+     */
+    public boolean insertLinksQuery(ArrayList<HashMap<String, Object>> attributesAndValues, String parentModelName) {
+        String thisIdFieldName = parentModelName + "ID";
+        LinkedHashMap<String, String> linkFieldNames = new LinkedHashMap<>();
+        HashMap<String, ArrayList<Object[]>> rowsByTable = new HashMap<>();
+
+        for (HashMap<String, Object> hMap : attributesAndValues) {
+            String table = (String)hMap.get("TABLENAME");
+            Object thisId = hMap.get(thisIdFieldName);
+            String linkFieldName = getLinkFieldName(hMap, thisIdFieldName);
+
+            ArrayList<Object[]> rows = rowsByTable.get(table);
+            if (rows == null) {
+                rows = new ArrayList<>();
+                rowsByTable.put(table, rows);
+                linkFieldNames.put(table, linkFieldName);
+            }
+            for (Object linkId : (ArrayList<?>)hMap.get(linkFieldName)) {
+                rows.add(new Object[]{ thisId, linkId });
+            }
         }
-        try {
-            String path = getClass()
-                        .getClassLoader()
-                        .getResource("Data/MPPMSDatabase")
-                        .getPath()
-                        .replaceAll("%20", " ")
-                        .replaceAll("build/classes", "src");
-            connection = DriverManager.getConnection("jdbc:sqlite:" + path);
-        } catch (SQLException ex) {
-            Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
+
+        boolean savedOK = true;
+        for (Map.Entry<String, String> link : linkFieldNames.entrySet()) {
+            savedOK &= batchQuery("INSERT INTO " + link.getKey() + " ( " + thisIdFieldName + ", " + link.getValue() + " ) VALUES ( ?, ? )",
+                    rowsByTable.get(link.getKey()));
         }
+        return savedOK;
     }
     
-    private void executeSelectStatement(String queryString) {
-        try {
-            statement = (Statement) connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-            results = statement.executeQuery(queryString);
-        } catch (SQLException ex) {
-            Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
+    /**
+     * Brings link table rows for a parent model in line with the given links by 
+     * comparing them with the rows already stored, then deleting only the links 
+     * which were removed and inserting only those which were added (each as a 
+     * single batch). Unchanged links are not touched, so the cost depends on the 
+     * number of changes rather than the size of the collection.
+     *
+     * @param attributesAndValues One HashMap per link table, as built by
+     * Model.getInnerAttributesAndValues().
+     * @param parentModelName The parent model's name (e.g. "PROJECT"), used to find
+     * the parent's ID field (e.g. "PROJECTID").
+     * @return true if all changes were written successfully, else false.
+     */
+    public boolean updateLinksQuery(ArrayList<HashMap<String, Object>> attributesAndValues, String parentModelName) {
+        boolean savedOK = true;
+        String thisIdFieldName = parentModelName + "ID";
+
+        for (HashMap<String, Object> hMap : attributesAndValues) {
+            String table = (String)hMap.get("TABLENAME");
+            Object thisId = hMap.get(thisIdFieldName);
+            String linkFieldName = getLinkFieldName(hMap, thisIdFieldName);
+
+            // Links are compared by their string form as SQLite may return a different
+            // numeric type to the one which was bound.
+            HashMap<String, Object> wanted = new LinkedHashMap<>();
+            for (Object linkId : (ArrayList<?>)hMap.get(linkFieldName)) {
+                wanted.put(String.valueOf(linkId), linkId);
+            }
+
+            HashMap<String, Object> stored = new LinkedHashMap<>();
+            ResultSet results = selectQuery("SELECT " + linkFieldName + " FROM " + table + " WHERE " + thisIdFieldName + " = ?", thisId);
+            if (results == null) {
+                return false;
+            }
+            try {
+                while (results.next()) {
+                    Object linkId = results.getObject(1);
+                    stored.put(String.valueOf(linkId), linkId);
+                }
+                closeResults(results);
+            } catch (SQLException ex) {
+                Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
+                return false;
+            }
+
+            ArrayList<Object[]> removed = new ArrayList<>();
+            for (Map.Entry<String, Object> link : stored.entrySet()) {
+                if (!wanted.containsKey(link.getKey())) {
+                    removed.add(new Object[]{ thisId, link.getValue() });
+                }
+            }
+
+            ArrayList<Object[]> added = new ArrayList<>();
+            for (Map.Entry<String, Object> link : wanted.entrySet()) {
+                if (!stored.containsKey(link.getKey())) {
+                    added.add(new Object[]{ thisId, link.getValue() });
+                }
+            }
+
+            savedOK &= batchQuery("DELETE FROM " + table + " WHERE " + thisIdFieldName + " = ? AND " + linkFieldName + " = ?", removed);
+            savedOK &= batchQuery("INSERT INTO " + table + " ( " + thisIdFieldName + ", " + linkFieldName + " ) VALUES ( ?, ? )", added);
         }
+        return savedOK;
     }
-    
-    private void executeInsertStatement(String queryString) {
+
+    /**
+     * Finds the name of the linked field in a link table HashMap (the only key which
+     * is neither TABLENAME nor the parent's ID field).
+     */
+    private String getLinkFieldName(HashMap<String, Object> hMap, String thisIdFieldName) {
+        for (String key : hMap.keySet()) {
+            if (!key.equals("TABLENAME") && !key.equals(thisIdFieldName)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("No link field given for table " + hMap.get("TABLENAME"));
+    }
+
+    /**
+     * Uses the connection of the thread's active UnitOfWork if there is one, otherwise
+     * borrows a connection from the ConnectionPool rather than opening a new one. A
+     * borrowed connection is handed back to the pool when dispose() is called.
+     *
+     * A UnitOfWork which could not get a connection has failed, so the connector is
+     * left without one (and every query fails): writes made on a borrowed connection
+     * would be committed at once, outside the unit of work.
+     */
+    private void createConnection() {
+        if (UnitOfWork.isActive()) {
+            pooledConnection = UnitOfWork.currentConnection();
+            return;
+        }
         try {
-            statement = (Statement) connection.createStatement();
-            statement.execute(queryString);
-            success = true;
+            pooledConnection = ConnectionPool.getInstance().acquire();
+            ownsConnection = true;
         } catch (SQLException ex) {
-            success = false;
             Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
-    
-    private void executeUpdateStatement(String queryString) {
+
+    /**
+     * Fetches the cached prepared statement for the query (preparing it on first
+     * use) and binds the parameters to it. The statement must be handed back to the
+     * connection once it is finished with.
+     *
+     * @see PooledConnection#releaseStatement(PreparedStatement)
+     */
+    private PreparedStatement prepare(String queryString, Object[] parameters) throws SQLException {
+        if (pooledConnection == null) {
+            throw new SQLException("No database connection available");
+        }
+        PreparedStatement statement = pooledConnection.prepareStatement(queryString);
         try {
-            statement = (Statement) connection.createStatement();
-            statement.executeUpdate(queryString);
-            success = true;
+            statement.clearParameters();
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
         } catch (SQLException ex) {
-            success = false;
-            Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
+            pooledConnection.releaseStatement(statement);
+            throw ex;
         }
+        return statement;
     }
-    
+
+    /**
+     * Closes results returned by selectQuery() before the connector is disposed,
+     * so that their statement can be reused straight away.
+     */
+    private void closeResults(ResultSet results) throws SQLException {
+        PreparedStatement statement = openResults.remove(results);
+        results.close();
+        if (statement != null) {
+            pooledConnection.releaseStatement(statement);
+        }
+    }
+
+    /**
+     * Closes any result sets opened by this connector, hands their statements back,
+     * and returns the connection
+     * to the pool (unless it belongs to a UnitOfWork, which releases it when it ends).
+     * Prepared statements stay cached on the connection for reuse. Safe to call more
+     * than once.
+     */
     public void dispose() {
-        try {
-            connection.close();
-            statement.close();
-        } catch (SQLException ex) {
-            Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
+        for (Map.Entry<ResultSet, PreparedStatement> results : openResults.entrySet()) {
+            try {
+                results.getKey().close();
+            } catch (SQLException ex) {
+                Logger.getLogger(DatabaseConnector.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            pooledConnection.releaseStatement(results.getValue());
+        }
+        openResults.clear();
+
+        if (pooledConnection != null && ownsConnection) {
+            ConnectionPool.getInstance().release(pooledConnection);
         }
+        pooledConnection = null;
+        ownsConnection = false;
     }
 }
@@ -0,0 +1,157 @@
+package Data;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This singleton class hands out IDs for new rows, so that a model knows its ID
+ * before it is inserted (e.g. to link it to other models in the same save).
+ *
+ * IDs are reserved from SQLite's own AUTOINCREMENT sequence (the sqlite_sequence
+ * table) in blocks: one UPDATE reserves a whole block, and the IDs in it are then
+ * handed out from memory. Because the reservation is written to the database, other
+ * instances of the application can never be handed the same IDs, and rows inserted
+ * by SQLite itself carry on from after the reserved IDs. IDs left in a block when the
+ * application exits are simply never used.
+ *
+ * The lock on the allocator only guards the blocks held in memory, and is never held
+ * while a block is reserved. A reservation joins the caller's unit of work, which
+ * holds the database's write lock, so a thread waiting for the allocator must never
+ * be holding the write lock another thread is waiting for.
+ *
+ * The block size is set using the mppms.ids.blockSize system property (default 10).
+ *
+ * @see UnitOfWork
+ */
+public class IdAllocator {
+    private static final String BLOCK_SIZE_PROPERTY = "mppms.ids.blockSize";
+
+    private static IdAllocator instance = null;
+
+    private final int blockSize = Math.max(1, Integer.getInteger(BLOCK_SIZE_PROPERTY, 10));
+    private final HashMap<String, Block> blocks = new HashMap<>();
+
+    public static synchronized IdAllocator getInstance() {
+        if (instance == null) {
+            instance = new IdAllocator();
+        }
+        return instance;
+    }
+
+    private IdAllocator() {
+        // Private constructor - Singleton pattern.
+    }
+
+    /**
+     * Gets an unused ID for a new row.
+     *
+     * @param table The table the row will be inserted into (e.g. "TASKS"). It must
+     * have an INTEGER PRIMARY KEY AUTOINCREMENT column named ID.
+     * @return The ID, or 0 if no ID could be reserved.
+     */
+    public int nextId(String table) {
+        synchronized (this) {
+            Block block = blocks.get(table);
+            if (block != null && block.next <= block.last) {
+                return block.next++;
+            }
+        }
+
+        Block reserved = reserveBlock(table, blockSize);
+        if (reserved == null) {
+            return 0;
+        }
+        synchronized (this) {
+            // Another thread may have reserved a block in the meantime; its IDs are not
+            // handed out twice, so either block can be used up first
+            Block block = blocks.get(table);
+            if (block == null || block.next > block.last) {
+                blocks.put(table, reserved);
+            }
+            return reserved.next++;
+        }
+    }
+
+    /**
+     * Gets a run of consecutive unused IDs for new rows, e.g. for a batch of rows
+     * which are inserted together. The IDs are reserved with a single UPDATE,
+     * however many are wanted, and do not use up the block nextId() hands out from.
+     *
+     * @param table The table the rows will be inserted into (e.g. "TASKS"). It must
+     * have an INTEGER PRIMARY KEY AUTOINCREMENT column named ID.
+     * @param count The number of IDs wanted.
+     * @return The first of the IDs (the rest follow on from it), or 0 if they could
+     * not be reserved.
+     */
+    public int nextIds(String table, int count) {
+        Block block = reserveBlock(table, count);
+        return (block == null ? 0 : block.next);
+    }
+
+    /**
+     * Reserves the next block of IDs for a table by moving its sequence on. If this is
+     * called during a save, the reservation joins the save's unit of work, and the
+     * block is forgotten if that unit of work is rolled back (as the reservation is
+     * then undone too).
+     */
+    private Block reserveBlock(final String table, int size) {
+        Block block = null;
+        UnitOfWork work = UnitOfWork.begin();
+        boolean success = false;
+        try {
+            DatabaseConnector dbConn = new DatabaseConnector();
+            // The sequence is only created by SQLite once a row has been inserted
+            success = dbConn.executeStatement(
+                    "INSERT INTO sqlite_sequence (name, seq) SELECT ?, 0 WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = ?)",
+                    table, table);
+            // Never hand out an ID below the greatest in use, e.g. if the sequence was reset.
+            // The subquery must be a bare MAX() so that SQLite reads it from the end of
+            // the primary key rather than scanning the table.
+            success &= dbConn.executeStatement(
+                    "UPDATE sqlite_sequence SET seq = MAX(seq, IFNULL((SELECT MAX(ID) FROM " + table + "), 0)) + ? WHERE name = ?",
+                    size, table);
+            ResultSet results = (success ? dbConn.selectQuery("SELECT seq FROM sqlite_sequence WHERE name = ?", table) : null);
+            if (results != null && results.next()) {
+                int last = results.getInt(1);
+                block = new Block(last - size + 1, last);
+            }
+            dbConn.dispose();
+        } catch (SQLException ex) {
+            Logger.getLogger(IdAllocator.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            success = work.end(block != null);
+        }
+        if (!success) {
+            return null;
+        }
+        if (!work.isFinished()) {
+            final Block reserved = block;
+            work.onRollback(new Runnable() {
+                @Override
+                public void run() {
+                    discardBlock(table, reserved);
+                }
+            });
+        }
+        return block;
+    }
+
+    private synchronized void discardBlock(String table, Block block) {
+        if (blocks.get(table) == block) {
+            blocks.remove(table);
+        }
+    }
+
+    private static class Block {
+        private int next;
+        private final int last;
+
+        Block(int first, int last) {
+            this.next = first;
+            this.last = last;
+        }
+    }
+}
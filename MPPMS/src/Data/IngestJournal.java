@@ -0,0 +1,63 @@
+package Data;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records which manifests have been ingested from the drop folder (in the
+ * INGESTJOURNAL table), so that they are not imported again when the application
+ * restarts. A manifest is identified by its path, size and last modified time, so
+ * one which is replaced by a new delivery of the same name is ingested again.
+ *
+ * @see Application.DropFolderIngestService
+ */
+public class IngestJournal {
+
+    private IngestJournal() {
+        // Not instantiable - use the static methods.
+    }
+
+    /**
+     * Indicates whether a manifest has been ingested, as it is now.
+     *
+     * @param manifest The manifest.
+     * @return true if the manifest has been ingested and has not changed since,
+     * else false.
+     */
+    public static boolean isIngested(File manifest) {
+        boolean ingested = false;
+        DatabaseConnector dbConn = new DatabaseConnector();
+        ResultSet results = dbConn.selectQuery("SELECT 1 FROM INGESTJOURNAL WHERE PATH = ? AND FILESIZE = ? AND LASTMODIFIED = ?",
+                manifest.getAbsolutePath(), manifest.length(), manifest.lastModified());
+        try {
+            ingested = (results != null && results.next());
+        } catch (SQLException ex) {
+            Logger.getLogger(IngestJournal.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        dbConn.dispose();
+        return ingested;
+    }
+
+    /**
+     * Records that a manifest has been ingested, replacing any earlier record of it.
+     *
+     * @param manifest The manifest.
+     * @param fileSize The manifest's size when it was ingested.
+     * @param lastModified The manifest's last modified time when it was ingested.
+     * @param assetsImported The number of Assets imported from it.
+     * @param assetsDuplicated The number of its Assets which had been imported before.
+     * @param assetsSkipped The number of its Assets which could not be read or saved.
+     * @return true if the record was written, else false.
+     */
+    public static boolean record(File manifest, long fileSize, long lastModified, int assetsImported, int assetsDuplicated, int assetsSkipped) {
+        DatabaseConnector dbConn = new DatabaseConnector();
+        boolean success = dbConn.executeStatement("INSERT OR REPLACE INTO INGESTJOURNAL ( PATH, FILESIZE, LASTMODIFIED, INGESTEDTIME, ASSETSIMPORTED, ASSETSDUPLICATED, ASSETSSKIPPED ) VALUES ( ?, ?, ?, ?, ?, ?, ? )",
+                manifest.getAbsolutePath(), fileSize, lastModified, System.currentTimeMillis(),
+                assetsImported, assetsDuplicated, assetsSkipped);
+        dbConn.dispose();
+        return success;
+    }
+}
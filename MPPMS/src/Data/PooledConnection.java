@@ -0,0 +1,222 @@
+package Data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A single SQLite connection owned by the ConnectionPool. Keeps track of when
+ * it was last handed back so that the pool can evict and health check idle
+ * connections, and caches the prepared statements run on it (least recently
+ * used statements are closed once the cache is full).
+ *
+ * A statement whose results are still being read is in use: running its query
+ * again would close those results, so a second, uncached statement is prepared for
+ * the query instead (e.g. when a nested load runs the same query as the load which
+ * is reading the results).
+ *
+ * @see ConnectionPool
+ */
+class PooledConnection {
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> statementCache;
+    private final Set<PreparedStatement> statementsInUse = Collections.newSetFromMap(new IdentityHashMap<PreparedStatement, Boolean>());
+    private boolean inTransaction = false;
+    private long lastReleasedAt;
+
+    PooledConnection(Connection connection) {
+        this.connection = connection;
+        this.lastReleasedAt = System.currentTimeMillis();
+        this.statementCache = new LinkedHashMap<String, PreparedStatement>(STATEMENT_CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > STATEMENT_CACHE_SIZE) {
+                    // A statement in use is closed once it has been released instead
+                    if (!statementsInUse.contains(eldest.getValue())) {
+                        closeStatement(eldest.getValue());
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets the prepared statement for a query, preparing and caching it the first
+     * time the query is seen on this connection. If the cached statement is in use,
+     * a new statement which is not cached is prepared instead.
+     *
+     * @param queryString The SQL, using '?' placeholders for values.
+     * @return The prepared statement, which must be handed back using
+     * releaseStatement() once it (and any results read from it) are finished with.
+     * @throws SQLException if the statement could not be prepared.
+     */
+    PreparedStatement prepareStatement(String queryString) throws SQLException {
+        PreparedStatement statement = statementCache.get(queryString);
+        if (statement == null) {
+            statement = connection.prepareStatement(queryString);
+            statementCache.put(queryString, statement);
+        }
+        else if (statementsInUse.contains(statement)) {
+            return connection.prepareStatement(queryString);
+        }
+        return statement;
+    }
+
+    /**
+     * Marks a statement as in use until it is released, e.g. while its results are
+     * being read.
+     *
+     * @param statement A statement returned by prepareStatement().
+     */
+    void useStatement(PreparedStatement statement) {
+        statementsInUse.add(statement);
+    }
+
+    /**
+     * Hands back a statement returned by prepareStatement(), closing it if it is not
+     * (or is no longer) cached.
+     *
+     * @param statement The statement, whose results must already have been closed.
+     */
+    void releaseStatement(PreparedStatement statement) {
+        statementsInUse.remove(statement);
+        if (!statementCache.containsValue(statement)) {
+            closeStatement(statement);
+        }
+    }
+    
+    int getCachedStatementCount() {
+        return statementCache.size();
+    }
+
+    long getIdleMillis() {
+        return System.currentTimeMillis() - lastReleasedAt;
+    }
+
+    void markReleased() {
+        lastReleasedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks that the underlying connection is still usable by running a trivial
+     * query against it. The SQLite driver does not implement Connection.isValid().
+     *
+     * @return true if the connection answered the query, else false.
+     */
+    boolean isHealthy() {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet results = statement.executeQuery("SELECT 1")) {
+                return results.next();
+            }
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Begins a transaction which takes the database's write lock straight away. The
+     * driver's own transactions (setAutoCommit(false)) are deferred: they only ask for
+     * the write lock at their first write, and under WAL that upgrade fails at once
+     * with SQLITE_BUSY if another connection has written since they began, rather
+     * than waiting out the busy timeout.
+     *
+     * @throws SQLException if the write lock could not be had within the busy timeout.
+     */
+    void beginImmediate() throws SQLException {
+        execute("BEGIN IMMEDIATE");
+        inTransaction = true;
+    }
+
+    /**
+     * Commits the transaction begun by beginImmediate(). If the commit fails the
+     * transaction is left open, to be rolled back by rollback() or reset().
+     *
+     * @throws SQLException if the transaction could not be committed.
+     */
+    void commit() throws SQLException {
+        execute("COMMIT");
+        inTransaction = false;
+    }
+
+    /**
+     * Rolls back the transaction begun by beginImmediate().
+     *
+     * @throws SQLException if the transaction could not be rolled back.
+     */
+    void rollback() throws SQLException {
+        execute("ROLLBACK");
+        inTransaction = false;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    /**
+     * Puts the connection back into a clean state before it is returned to the pool.
+     *
+     * @return true if the connection can be reused, else false.
+     */
+    boolean reset() {
+        try {
+            if (inTransaction) {
+                rollback();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return !connection.isClosed();
+        } catch (SQLException ex) {
+            Logger.getLogger(PooledConnection.class.getName()).log(Level.WARNING, null, ex);
+            return false;
+        }
+    }
+
+    void close() {
+        for (PreparedStatement statement : statementCache.values()) {
+            closeStatement(statement);
+        }
+        for (PreparedStatement statement : statementsInUse) {
+            closeStatement(statement);
+        }
+        statementCache.clear();
+        statementsInUse.clear();
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            Logger.getLogger(PooledConnection.class.getName()).log(Level.WARNING, null, ex);
+        }
+    }
+
+    private void closeStatement(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ex) {
+            Logger.getLogger(PooledConnection.class.getName()).log(Level.WARNING, null, ex);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package Data;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Brings the application's database up to the schema this version of the code
+ * expects. The schema version is kept in SQLite's user_version header field, and
+ * each migration which has not yet been applied is run in its own transaction
+ * together with the version bump, so a failed migration leaves the database at
+ * the previous version and is retried on the next start.
+ *
+ * To change the schema, append a migration to MIGRATIONS; never edit one which
+ * has already been released.
+ */
+public class SchemaMigrator {
+    /**
+     * The link tables, each with its parent ID field and linked field.
+     */
+    private static final String[][] LINK_TABLES = {
+        { "COMPONENTASSETS", "COMPONENTID", "ASSETID" },
+        { "PROJECTCOMPONENTS", "PROJECTID", "COMPONENTID" },
+        { "PROJECTTASKS", "PROJECTID", "TASKID" },
+        { "PROJECTTEAM", "PROJECTID", "USERNAME" },
+        { "REPORTCOMMENTS", "REPORTID", "COMMENTID" },
+        { "TASKASSETS", "TASKID", "ASSETID" },
+        { "TASKASSIGNEDTO", "TASKID", "USERNAME" }
+    };
+
+    /**
+     * The statements of each migration. Migration n (counting from 1) takes the
+     * database from version n - 1 to version n.
+     */
+    private static final String[][] MIGRATIONS = {
+        // 1: The tables as they were before the schema was versioned
+        {
+            "CREATE TABLE IF NOT EXISTS [ASSETS] ([ID] INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL UNIQUE, [ASSETTYPE] VARCHAR NOT NULL, [ASSETLENGTH] INTEGER NOT NULL, [DESCRIPTION] TEXT NOT NULL, FILEPATH string)",
+            "CREATE TABLE IF NOT EXISTS [COMPONENTS] ([ID] INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL UNIQUE, [DESCRIPTION] TEXT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [COMPONENTASSETS] ([COMPONENTID] INTEGER NOT NULL, [ASSETID] INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [COMMENTS] ([ID] INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL UNIQUE, [COMMENTDATE] DATE NOT NULL, [USERNAME] VARCHAR NOT NULL, [CONTENT] TEXT NOT NULL, ISANNOTATION integer default 0, ASSETID integer default 0, DOUBLE integer default 0)",
+            "CREATE TABLE IF NOT EXISTS [PROJECTCOMPONENTS] ([PROJECTID] INTEGER NOT NULL, [COMPONENTID] INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [PROJECTS] ([ID] INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL UNIQUE, [TITLE] VARCHAR NOT NULL, [CREATIONDATE] DATE NOT NULL, [DEADLINEDATE] DATE NOT NULL, [PRIORITY] VARCHAR NOT NULL, [MANAGER] VARCHAR NOT NULL, [COORDINATOR] VARCHAR NOT NULL, [CLIENT] VARCHAR NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [PROJECTTASKS] ([PROJECTID] INTEGER NOT NULL, [TASKID] INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [PROJECTTEAM] ([PROJECTID] INTEGER NOT NULL, [USERNAME] VARCHAR NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [REPORTCOMMENTS] ([REPORTID] INTEGER NOT NULL, [COMMENTID] INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [REPORTS] ([ID] INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL UNIQUE, [TITLE] VARCHAR NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [TASKASSETS] ([TASKID] INTEGER NOT NULL, [ASSETID] INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [TASKASSIGNEDTO] ([TASKID] INTEGER NOT NULL, [USERNAME] VARCHAR NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [TASKS] ([ID] INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL UNIQUE, [TITLE] VARCHAR NOT NULL, [TASKTYPE] VARCHAR NOT NULL, [STATUS] VARCHAR NOT NULL, [PRIORITY] VARCHAR NOT NULL, [REPORTID] INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS [USERS] ([USERNAME] VARCHAR PRIMARY KEY NOT NULL UNIQUE, [FORENAME] VARCHAR, [SURNAME] VARCHAR, [NAME] VARCHAR, [PASSWORD] VARCHAR NOT NULL, [ROLE] VARCHAR NOT NULL)"
+        },
+        // 2: Indexes on the link tables' foreign keys
+        linkTableIndexes(),
+        // 3: The content hashes of imported Assets' files, to find duplicates
+        {
+            "CREATE TABLE IF NOT EXISTS [ASSETHASHES] ([ASSETID] INTEGER NOT NULL, [HASH] VARCHAR NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS [IX_ASSETHASHES_HASH] ON [ASSETHASHES] ([HASH])",
+            "CREATE INDEX IF NOT EXISTS [IX_ASSETHASHES_ASSETID] ON [ASSETHASHES] ([ASSETID], [HASH])"
+        },
+        // 4: The manifests which have been ingested from the drop folder
+        {
+            "CREATE TABLE IF NOT EXISTS [INGESTJOURNAL] ([PATH] VARCHAR PRIMARY KEY NOT NULL UNIQUE, [FILESIZE] INTEGER NOT NULL, [LASTMODIFIED] INTEGER NOT NULL, [INGESTEDTIME] INTEGER NOT NULL, [ASSETSIMPORTED] INTEGER NOT NULL, [ASSETSDUPLICATED] INTEGER NOT NULL, [ASSETSSKIPPED] INTEGER NOT NULL)"
+        }
+    };
+
+    private SchemaMigrator() {
+        // Not instantiable - use migrate().
+    }
+
+    /**
+     * Applies any migrations which the database has not had yet. Called once when
+     * the application starts, before anything else uses the database.
+     *
+     * @return true if the database is now at the latest version, else false.
+     */
+    public static boolean migrate() {
+        int version = getVersion();
+        if (version < 0) {
+            return false;
+        }
+        for (int target = version + 1; target <= MIGRATIONS.length; target++) {
+            if (!applyMigration(target)) {
+                return false;
+            }
+            Logger.getLogger(SchemaMigrator.class.getName()).log(Level.INFO, "Migrated database to schema version {0}", target);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the latest schema version, which migrate() brings the database up to.
+     *
+     * @return The number of migrations.
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.length;
+    }
+
+    /**
+     * Gets the database's current schema version.
+     *
+     * @return The version (0 for a database which has never been migrated), or -1
+     * if it could not be read.
+     */
+    public static int getVersion() {
+        int version = -1;
+        DatabaseConnector dbConn = new DatabaseConnector();
+        ResultSet results = dbConn.selectQuery("PRAGMA user_version");
+        try {
+            if (results != null && results.next()) {
+                version = results.getInt(1);
+            }
+        } catch (SQLException ex) {
+            Logger.getLogger(SchemaMigrator.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        dbConn.dispose();
+        return version;
+    }
+
+    private static boolean applyMigration(int target) {
+        UnitOfWork work = UnitOfWork.begin();
+        boolean success = true;
+        try {
+            DatabaseConnector dbConn = new DatabaseConnector();
+            for (String statement : MIGRATIONS[target - 1]) {
+                success = dbConn.executeStatement(statement);
+                if (!success) {
+                    break;
+                }
+            }
+            if (success) {
+                // PRAGMA values cannot be bound as parameters
+                success = dbConn.executeStatement("PRAGMA user_version = " + target);
+            }
+            dbConn.dispose();
+        } finally {
+            success = work.end(success);
+        }
+        return success;
+    }
+
+    /**
+     * Builds the statements which index each link table by its parent ID and linked
+     * field together (for loading and changing a model's links) and by its linked
+     * field alone (for finding the models which link to something).
+     */
+    private static String[] linkTableIndexes() {
+        String[] statements = new String[LINK_TABLES.length * 2];
+        for (int i = 0; i < LINK_TABLES.length; i++) {
+            String table = LINK_TABLES[i][0];
+            String parentIdField = LINK_TABLES[i][1];
+            String linkField = LINK_TABLES[i][2];
+            statements[i * 2] = "CREATE INDEX IF NOT EXISTS [IX_" + table + "_" + parentIdField + "] ON [" + table
+                    + "] ([" + parentIdField + "], [" + linkField + "])";
+            statements[i * 2 + 1] = "CREATE INDEX IF NOT EXISTS [IX_" + table + "_" + linkField + "] ON [" + table
+                    + "] ([" + linkField + "])";
+        }
+        return statements;
+    }
+}
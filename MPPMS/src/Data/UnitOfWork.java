@@ -0,0 +1,190 @@
+package Data;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Groups every database write made by the current thread between begin() and the
+ * matching end() into a single transaction. Units of work nest: a save which is
+ * called from inside another save (e.g. the Comments saved by a Report) joins the
+ * outer unit of work, and only the outermost end() commits or rolls back.
+ *
+ * While a unit of work is active, every DatabaseConnector created on the same
+ * thread uses its connection, so reads inside a save see the uncommitted writes.
+ * The transaction is begun with BEGIN IMMEDIATE, so a unit of work which cannot
+ * have the write lock fails before it makes any writes.
+ *
+ * Usage:
+ * <pre>
+ *     UnitOfWork work = UnitOfWork.begin();
+ *     boolean success = false;
+ *     try {
+ *         success = ...;
+ *     } finally {
+ *         success = work.end(success);
+ *     }
+ * </pre>
+ *
+ * @see DatabaseConnector
+ */
+public class UnitOfWork {
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    private final PooledConnection pooledConnection;
+    private final ArrayList<Runnable> commitActions = new ArrayList<>();
+    private final ArrayList<Runnable> rollbackActions = new ArrayList<>();
+    private int depth = 0;
+    private boolean rollbackOnly = false;
+    private boolean finished = false;
+
+    private UnitOfWork(PooledConnection pooledConnection) {
+        this.pooledConnection = pooledConnection;
+        this.rollbackOnly = (pooledConnection == null);
+    }
+
+    /**
+     * Starts a new unit of work, or joins the one already active on this thread.
+     * If no connection can be had for a new unit of work, it fails straight away:
+     * it is marked for rollback, and every DatabaseConnector created inside it has
+     * no connection, so none of its writes are made (rather than each being
+     * committed on a connection of its own).
+     *
+     * @return The active unit of work. end() must be called exactly once for each
+     * call to begin().
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork work = current.get();
+
+        if (work == null) {
+            PooledConnection pooled = null;
+            try {
+                pooled = ConnectionPool.getInstance().acquire();
+                pooled.beginImmediate();
+            } catch (SQLException ex) {
+                Logger.getLogger(UnitOfWork.class.getName()).log(Level.SEVERE, null, ex);
+                if (pooled != null) {
+                    ConnectionPool.getInstance().release(pooled);
+                    pooled = null;
+                }
+            }
+            work = new UnitOfWork(pooled);
+            current.set(work);
+        }
+        work.depth++;
+        return work;
+    }
+
+    /**
+     * Indicates whether a unit of work is active on this thread.
+     *
+     * @return true if a unit of work has begun and not yet ended, else false.
+     */
+    static boolean isActive() {
+        return (current.get() != null);
+    }
+
+    /**
+     * Gets the connection of the unit of work active on this thread, if any.
+     *
+     * @return The transaction's connection, or null if no unit of work is active.
+     */
+    static PooledConnection currentConnection() {
+        UnitOfWork work = current.get();
+        return (work == null ? null : work.pooledConnection);
+    }
+
+    /**
+     * Ends this participant's part of the unit of work. An unsuccessful participant
+     * marks the whole unit of work for rollback. The outermost call commits (or rolls
+     * back) the transaction and returns the connection to the pool.
+     *
+     * @param success Whether this participant's writes succeeded.
+     * @return For a nested participant, the success value passed in. For the outermost
+     * participant, true only if the transaction was committed.
+     */
+    public boolean end(boolean success) {
+        if (!success) {
+            rollbackOnly = true;
+        }
+        if (--depth > 0) {
+            return success;
+        }
+
+        current.remove();
+        finished = true;
+
+        if (pooledConnection == null) {
+            runRollbackActions();
+            return false;
+        }
+
+        boolean committed = false;
+        try {
+            if (rollbackOnly) {
+                pooledConnection.rollback();
+            }
+            else {
+                pooledConnection.commit();
+                committed = true;
+            }
+        } catch (SQLException ex) {
+            Logger.getLogger(UnitOfWork.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        ConnectionPool.getInstance().release(pooledConnection);
+
+        if (committed) {
+            runCommitActions();
+        }
+        else {
+            runRollbackActions();
+        }
+        return committed;
+    }
+
+    /**
+     * Registers an action to run once this unit of work has been committed, e.g. to
+     * tell other threads about the writes now that they can read them.
+     *
+     * @param action The action, which is run on this thread after the commit.
+     */
+    public void onCommit(Runnable action) {
+        commitActions.add(action);
+    }
+
+    /**
+     * Registers an action to run if this unit of work is rolled back, e.g. to forget
+     * in-memory state which relied on the uncommitted writes.
+     *
+     * @param action The action, which is run on this thread after the rollback.
+     */
+    public void onRollback(Runnable action) {
+        rollbackActions.add(action);
+    }
+
+    private void runCommitActions() {
+        rollbackActions.clear();
+        for (Runnable action : commitActions) {
+            action.run();
+        }
+        commitActions.clear();
+    }
+
+    private void runRollbackActions() {
+        commitActions.clear();
+        for (Runnable action : rollbackActions) {
+            action.run();
+        }
+        rollbackActions.clear();
+    }
+
+    /**
+     * Indicates whether the outermost participant has ended this unit of work.
+     *
+     * @return true once the transaction has been committed or rolled back.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+}
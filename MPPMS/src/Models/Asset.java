@@ -1,23 +1,35 @@
 package Models;
 
-import Application.AppObservable;
+import Application.ModelChange;
 import Data.DatabaseConnector;
+import Data.IdAllocator;
 import java.io.File;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Asset extends Model {
     private static SetOfAssets allAssets = null;
+    private static final IdentityMap<Asset> assetsById = new IdentityMap<>();
+    private static final int HASH_LOOKUP_SIZE = 500;
+    /**
+     * The content hash is kept in its own table (see getAssetIdsByContentHash()),
+     * and is only written with a new Asset; it is never loaded.
+     */
+    private static final String INSERT_HASH = "INSERT INTO ASSETHASHES ( ASSETID, HASH ) VALUES ( ?, ? )";
     
     private int id;    
     private AssetType assetType;    
     private int length;
     private String description;
     private File file = null;
+    private String contentHash = null;
 
     
     public enum AssetType {
@@ -45,6 +57,11 @@ public class Asset extends Model {
         return id;
     }
 
+    @Override
+    protected void setId(int id) {
+        this.id = id;
+    }
+
     public int getLength() {
         return length;
     }
@@ -61,6 +78,26 @@ public class Asset extends Model {
         return file;
     }
     
+    /**
+     * Sets the hash of the content of the Asset's file, which is saved with a new
+     * Asset so that later imports of the same file can be found. An Asset without a
+     * file may be given a hash of where it was imported from instead.
+     * 
+     * @param contentHash The hash, as hex digits, or null if it is not known.
+     * @see #getAssetIdsByContentHash(Collection)
+     */
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+    
+    /**
+     * @return The hash of the content of the Asset's file, or null if it is not
+     * known. It is only known for an Asset which has been given one since it was loaded.
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+    
     public String getLengthAsString() {
         return "" + this.length;
     }
@@ -81,52 +118,179 @@ public class Asset extends Model {
         this.assetType = type;
     }
     
-    public static void clearAndNullifyAll() {
-        if (allAssets != null) {
-            allAssets.clear();
-            allAssets = null;
+    public static synchronized void clearAndNullifyAll() {
+        assetsById.clear();
+        // The list is dropped rather than cleared, as other threads may still be iterating over it
+        allAssets = null;
+    }
+    
+    /**
+     * Puts a saved Asset into the cache (if it has been loaded), replacing any other
+     * instance held for the same ID.
+     * 
+     * @param asset The Asset which has been saved.
+     */
+    private static void updateCache(Asset asset) {
+        updateCache(Collections.singletonList(asset));
+    }
+    
+    /**
+     * Puts saved Assets into the cache (if it has been loaded), replacing any other
+     * instances held for the same IDs. The list is only copied once, however many
+     * Assets there are.
+     * 
+     * @param assets The Assets which have been saved.
+     */
+    private static synchronized void updateCache(List<Asset> assets) {
+        if (allAssets == null) {
+            return;
+        }
+        SetOfAssets updated = null;
+        for (Asset asset : assets) {
+            Asset cached = assetsById.get(asset.getId());
+            if (cached != asset) {
+                // Replace the list rather than changing it, as other threads may be iterating over it
+                if (updated == null) {
+                    updated = new SetOfAssets();
+                    updated.addAll(allAssets);
+                }
+                if (cached == null) {
+                    updated.add(asset);
+                }
+                else {
+                    updated.set(updated.indexOf(cached), asset);
+                }
+                assetsById.put(asset.getId(), asset);
+            }
+        }
+        if (updated != null) {
+            allAssets = updated;
         }
     }
     
-    @Override
-    public boolean save() {
+    /**
+     * Saves several Assets in a single transaction. The new Assets are given a run
+     * of IDs up front and inserted as a single batch, so this is much quicker than
+     * saving them one at a time (e.g. when importing). Observers are told about all
+     * of them at once.
+     * 
+     * @param assets The Assets to save.
+     * @return true if every Asset was saved, false if an error occurred (in which
+     * case none of them were).
+     * @see Model#saveAll(List)
+     */
+    public static boolean saveAll(SetOfAssets assets) {
+        return saveAll(assets, new BatchWriter<Asset>() {
+            @Override
+            public boolean saveToDatabase(List<Asset> assets) {
+                SetOfAssets created = new SetOfAssets();
+                for (Asset asset : assets) {
+                    if (asset.id == 0) {
+                        created.add(asset);
+                    }
+                    else if (!asset.saveToDatabase()) {
+                        return false;
+                    }
+                }
+                return insertAll(created);
+            }
+        });
+    }
+    
+    /**
+     * Inserts new Assets as a single batch.
+     */
+    private static boolean insertAll(SetOfAssets assets) {
+        if (assets.isEmpty()) {
+            return true;
+        }
+        int firstId = IdAllocator.getInstance().nextIds("ASSETS", assets.size());
+        if (firstId == 0) {
+            return false;
+        }
+        
+        ArrayList<HashMap<String, Object>> rows = new ArrayList<>();
+        ArrayList<Object[]> hashes = new ArrayList<>();
+        for (int i = 0; i < assets.size(); i++) {
+            Asset asset = assets.get(i);
+            asset.id = firstId + i;
+            rows.add(asset.getAttributesAndValues(true));
+            if (asset.contentHash != null) {
+                hashes.add(new Object[] { asset.id, asset.contentHash });
+            }
+        }
+        recordNewIds(assets);
+        
         DatabaseConnector dbConn = new DatabaseConnector();
-        boolean success;
+        boolean success = dbConn.insertAllQuery(rows);
+        if (success && !hashes.isEmpty()) {
+            success = dbConn.batchQuery(INSERT_HASH, hashes);
+        }
+        dbConn.dispose();
+        
+        if (success) {
+            updateCache(assets);
+            for (Asset asset : assets) {
+                recordChange(ModelChange.EntityType.Asset, asset.id, ModelChange.Kind.Created);
+            }
+        }
+        
+        return success;
+    }
+    
+    @Override
+    protected boolean saveToDatabase() {
+        boolean success = true;
+        boolean isNew = (this.id == 0);
+        
+        if (!isNew && !hasChanges()) {
+            // Nothing has changed since the Asset was loaded or last saved
+            return true;
+        }
         
-        if (this.id == 0) {
-            this.id = Asset.getNextAvailableId();
-            success = dbConn.insertQuery(getAttributesAndValues(false));
+        DatabaseConnector dbConn = new DatabaseConnector();
+        ModelChange.Kind kind;
+
+        if (isNew) {
+            this.id = IdAllocator.getInstance().nextId("ASSETS");
+            recordNewIds(Collections.singletonList(this));
+            success &= (this.id != 0) && dbConn.insertQuery(getAttributesAndValues(true));
+            if (success && contentHash != null) {
+                success = dbConn.executeStatement(INSERT_HASH, this.id, contentHash);
+            }
+            kind = ModelChange.Kind.Created;
         }
         else {
-            success = dbConn.updateQuery(getAttributesAndValues(true));
+            success &= dbConn.updateQuery(getChangedAttributesAndValues());
+            kind = ModelChange.Kind.Updated;
         }
-             
+        dbConn.dispose();
+        
         if (success) {
-            /*
-            Craig - Database content has changed so we tell the Subject to
-            update its Observers
-            */
-            AppObservable.getInstance().notifyObserversToRefresh();
+            // Keep the cache in step so that it need not be reloaded once this unit of work commits
+            updateCache(this);
+            recordChange(ModelChange.EntityType.Asset, this.id, kind);
         }
         
         return success;
     }
     
     @Override
-    protected HashMap<String, String> getAttributesAndValues(final boolean includeId) {
-        return new HashMap<String, String>() {{
+    protected HashMap<String, Object> getAttributesAndValues(final boolean includeId) {
+        return new HashMap<String, Object>() {{
             put("TABLENAME", "ASSETS");
-            if (includeId) put("ID", "" + getId());
-            put("ASSETTYPE", wrapInSingleQuotes(getAssetType().toString()));
-            put("ASSETLENGTH", "" + getLength());
-            put("DESCRIPTION", wrapInSingleQuotes(getDescription()));
-            put("FILEPATH", wrapInSingleQuotes(file.getPath()));
+            if (includeId) put("ID", getId());
+            put("ASSETTYPE", getAssetType().toString());
+            put("ASSETLENGTH", getLength());
+            put("DESCRIPTION", getDescription());
+            put("FILEPATH", file == null ? null : file.getPath());
         }};
     }
 
     @Override
     protected ArrayList<HashMap<String, Object>> getInnerAttributesAndValues() {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        // Assets have no links
+        return new ArrayList<>();
     }
     
     @Override
@@ -134,33 +298,57 @@ public class Asset extends Model {
         return "(ID: " + getId() + ") " + getAssetType() + " asset (Length: " + getLengthAsString() + ") " + (getDescription().length() > 25 ? getDescription().substring(0, 25) + "..." : getDescription());
     }
     
-    public static SetOfAssets getAllAssets() {
+    public static synchronized SetOfAssets getAllAssets() {
         if (allAssets == null) {
             populateAssets();
         }
         return allAssets;
     }
     
-    public static Asset getAssetByID(int id) {
-        for (Asset asset : getAllAssets()) {
-            if (asset.getId() == id) {
-                return asset;
-            }
-        }
-        return null;
+    public static synchronized Asset getAssetByID(int id) {
+        getAllAssets();
+        return assetsById.get(id);
     }
     
-    private static int getNextAvailableId() {
-        int greatestId = 0;
-        for (Asset asset : getAllAssets()) {
-            greatestId = Math.max(greatestId, asset.getId());
+    /**
+     * Finds the saved Assets whose files had the given content hashes.
+     * 
+     * @param contentHashes The hashes to look for.
+     * @return The ID of an Asset for each hash which was found, by hash.
+     * @see #setContentHash(String)
+     */
+    public static HashMap<String, Integer> getAssetIdsByContentHash(Collection<String> contentHashes) {
+        HashMap<String, Integer> assetIds = new HashMap<>();
+        ArrayList<String> hashes = new ArrayList<>(contentHashes);
+        DatabaseConnector dbConn = new DatabaseConnector();
+        
+        // SQLite limits the number of parameters in a statement, so they are looked up in chunks
+        for (int start = 0; start < hashes.size(); start += HASH_LOOKUP_SIZE) {
+            List<String> chunk = hashes.subList(start, Math.min(start + HASH_LOOKUP_SIZE, hashes.size()));
+            String placeholders = "";
+            for (int i = 0; i < chunk.size(); i++) {
+                placeholders += (i == 0 ? "?" : ", ?");
+            }
+            // Hashes of Assets which have since been deleted are ignored
+            ResultSet results = dbConn.selectQuery("SELECT HASH, MIN(ASSETID) FROM ASSETHASHES WHERE HASH IN ( " + placeholders + " )"
+                    + " AND ASSETID IN ( SELECT ID FROM ASSETS ) GROUP BY HASH", chunk.toArray());
+            try {
+                while (results != null && results.next()) {
+                    assetIds.put(results.getString(1), results.getInt(2));
+                }
+            } catch (SQLException ex) {
+                Logger.getLogger(Asset.class.getName()).log(Level.SEVERE, null, ex);
+            }
         }
-        return greatestId + 1;
-    }
         
-    private static void populateAssets() {
+        dbConn.dispose();
+        return assetIds;
+    }
+    
+    private static synchronized void populateAssets() {
         try {
             allAssets = new SetOfAssets();
+            assetsById.clear();
             DatabaseConnector dbConn = new DatabaseConnector();
             ResultSet assets = dbConn.selectQuery("SELECT * FROM ASSETS");
             
@@ -178,7 +366,9 @@ public class Asset extends Model {
                         asset.setFile(f);
                 }
                 
+                asset.markClean();
                 allAssets.add(asset);
+                assetsById.put(asset.getId(), asset);
             }
             dbConn.dispose();
         } catch (SQLException ex) {
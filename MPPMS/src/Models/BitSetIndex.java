@@ -0,0 +1,108 @@
+package Models;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A secondary index from a key (e.g. a Task's status) to the IDs of the models
+ * with that key, held as a BitSet so that the IDs for several keys can be
+ * intersected (BitSet.and) cheaply. A model may be indexed under any number of
+ * keys (e.g. one per assigned User). Re-indexing a model replaces its old keys.
+ *
+ * @param <K> The type of key.
+ */
+public class BitSetIndex<K> {
+    private final Map<K, BitSet> idsByKey;
+    private final HashMap<Integer, Collection<K>> keysById = new HashMap<>();
+
+    /**
+     * Creates an index backed by a HashMap.
+     */
+    public BitSetIndex() {
+        this(new HashMap<K, BitSet>());
+    }
+
+    /**
+     * Creates an index backed by the given (empty) map, e.g. an EnumMap for enum keys.
+     *
+     * @param idsByKey The map to hold the index in.
+     */
+    public BitSetIndex(Map<K, BitSet> idsByKey) {
+        this.idsByKey = idsByKey;
+    }
+
+    /**
+     * Indexes a model under a single key, replacing any keys it was indexed under.
+     *
+     * @param id The model's ID.
+     * @param key The key, or null to index the model under no key.
+     */
+    public void put(int id, K key) {
+        put(id, key == null ? Collections.<K>emptyList() : Collections.singletonList(key));
+    }
+
+    /**
+     * Indexes a model under each of the given keys, replacing any keys it was
+     * indexed under.
+     *
+     * @param id The model's ID.
+     * @param keys The keys.
+     */
+    public void put(int id, Collection<K> keys) {
+        remove(id);
+        ArrayList<K> indexedKeys = new ArrayList<>();
+        for (K key : keys) {
+            if (key == null || indexedKeys.contains(key)) {
+                continue;
+            }
+            BitSet ids = idsByKey.get(key);
+            if (ids == null) {
+                ids = new BitSet();
+                idsByKey.put(key, ids);
+            }
+            ids.set(id);
+            indexedKeys.add(key);
+        }
+        keysById.put(id, indexedKeys);
+    }
+
+    /**
+     * Removes a model from the index.
+     *
+     * @param id The model's ID.
+     */
+    public void remove(int id) {
+        Collection<K> keys = keysById.remove(id);
+        if (keys == null) {
+            return;
+        }
+        for (K key : keys) {
+            BitSet ids = idsByKey.get(key);
+            ids.clear(id);
+            if (ids.isEmpty()) {
+                idsByKey.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Gets the IDs of the models indexed under a key.
+     *
+     * @param key The key.
+     * @return A copy of the IDs, which the caller may change (e.g. to intersect it
+     * with other results).
+     */
+    public BitSet get(K key) {
+        BitSet ids = idsByKey.get(key);
+        return (ids == null ? new BitSet() : (BitSet)ids.clone());
+    }
+
+    public void clear() {
+        idsByKey.clear();
+        keysById.clear();
+    }
+}
@@ -1,12 +1,14 @@
 package Models;
 
-import Application.AppObservable;
+import Application.ModelChange;
 import Data.DatabaseConnector;
+import Data.IdAllocator;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.logging.Level;
@@ -14,6 +16,7 @@ import java.util.logging.Logger;
 
 public class Comment extends Model {
     private static SetOfComments allComments = null;
+    private static final IdentityMap<Comment> commentsById = new IdentityMap<>();
     
     private int id;
     
@@ -38,6 +41,11 @@ public class Comment extends Model {
     public int getId() {
         return this.id;
     }
+
+    @Override
+    protected void setId(int id) {
+        this.id = id;
+    }
     
     public String getContent() {
         return this.content;
@@ -63,51 +71,92 @@ public class Comment extends Model {
         this.date = date;
     }
     
-    public static void clearAndNullifyAll() {
-        if (allComments != null) {
-            allComments.clear();
-            allComments = null;
+    public static synchronized void clearAndNullifyAll() {
+        commentsById.clear();
+        // The list is dropped rather than cleared, as other threads may still be iterating over it
+        allComments = null;
+    }
+    
+    /**
+     * Puts a saved Comment into the cache (if it has been loaded), replacing any other
+     * instance held for the same ID.
+     * 
+     * @param comment The Comment which has been saved.
+     */
+    private static synchronized void updateCache(Comment comment) {
+        if (allComments == null) {
+            return;
+        }
+        Comment cached = commentsById.get(comment.getId());
+        if (cached != comment) {
+            // Replace the list rather than changing it, as other threads may be iterating over it
+            SetOfComments updated = new SetOfComments();
+            updated.addAll(allComments);
+            if (cached == null) {
+                updated.add(comment);
+            }
+            else {
+                updated.set(updated.indexOf(cached), comment);
+            }
+            allComments = updated;
+            commentsById.put(comment.getId(), comment);
         }
     }
 
     @Override
-    public boolean save() {
-        DatabaseConnector dbConn = new DatabaseConnector();
-        boolean success;
+    protected boolean saveToDatabase() {
+        boolean success = true;
+        boolean isNew = (this.id == 0);
         
-        if (this.id == 0) {
-            this.id = Comment.getNextAvailableID();
-            success = dbConn.insertQuery(getAttributesAndValues(false));
+        if (!isNew && !hasChanges()) {
+            // Nothing has changed since the Comment was loaded or last saved
+            return true;
+        }
+        
+        DatabaseConnector dbConn = new DatabaseConnector();
+        ModelChange.Kind kind;
+
+        if (isNew) {
+            this.id = IdAllocator.getInstance().nextId("COMMENTS");
+            recordNewIds(Collections.singletonList(this));
+            success &= (this.id != 0) && dbConn.insertQuery(getAttributesAndValues(true));
+            kind = ModelChange.Kind.Created;
         }
         else {
-            success = dbConn.updateQuery(getAttributesAndValues(true));
+            success &= dbConn.updateQuery(getChangedAttributesAndValues());
+            kind = ModelChange.Kind.Updated;
         }
-            
+        dbConn.dispose();
+        
         if (success) {
-            /*
-            Craig - Database content has changed so we tell the Subject to
-            update its Observers
-            */
-            AppObservable.getInstance().notifyObserversToRefresh();
+            // Keep the cache in step so that it need not be reloaded once this unit of work commits
+            updateCache(this);
+            recordChange(ModelChange.EntityType.Comment, this.id, kind);
         }
         
         return success;
     }
 
     @Override
-    protected HashMap<String, String> getAttributesAndValues(final boolean includeId) {
-        return new HashMap<String, String>() {{
+    protected boolean isComplete() {
+        return (user != null);
+    }
+
+    @Override
+    protected HashMap<String, Object> getAttributesAndValues(final boolean includeId) {
+        return new HashMap<String, Object>() {{
             put("TABLENAME", "COMMENTS");
-            if (includeId) put("ID", "" + getId());
-            put("USERNAME", wrapInSingleQuotes(getUser().getUsername()));
-            put("COMMENTDATE", wrapInSingleQuotes(new SimpleDateFormat("dd MMM yyyy").format(getDate())));
-            put("CONTENT", wrapInSingleQuotes(getContent()));
+            if (includeId) put("ID", getId());
+            put("USERNAME", getUser().getUsername());
+            put("COMMENTDATE", new SimpleDateFormat("dd MMM yyyy").format(getDate()));
+            put("CONTENT", getContent());
         }};
     }
 
     @Override
     protected ArrayList<HashMap<String, Object>> getInnerAttributesAndValues() {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        // Comments have no links
+        return new ArrayList<>();
     }
     
     @Override
@@ -115,33 +164,22 @@ public class Comment extends Model {
         return new SimpleDateFormat("dd MMM yyy").format(date) + " by " + user.toString();
     }
     
-    public static SetOfComments getAllComments() {
+    public static synchronized SetOfComments getAllComments() {
         if (allComments == null) {
             populateComments();
         }
         return allComments;
     }
     
-    public static Comment getCommentByID(int commentId) {
-        for (Comment comment : getAllComments()) {
-            if (comment.getId() == commentId) {
-                return comment;
-            }
-        }
-        return null;
-    }
-    
-    private static int getNextAvailableID() {
-        int greatestId = 0;
-        for (Comment comment : getAllComments()) {
-            greatestId = Math.max(greatestId, comment.getId());
-        }
-        return greatestId + 1;
+    public static synchronized Comment getCommentByID(int commentId) {
+        getAllComments();
+        return commentsById.get(commentId);
     }
     
-    private static void populateComments() {
+    private static synchronized void populateComments() {
         try {
             allComments = new SetOfComments();
+            commentsById.clear();
             DatabaseConnector dbConn = new DatabaseConnector();
             ResultSet comments = dbConn.selectQuery("SELECT * FROM COMMENTS");
             
@@ -152,7 +190,9 @@ public class Comment extends Model {
                                             new SimpleDateFormat("dd MMM yyyy").parse(comments.getString("COMMENTDATE")),
                                             User.getUserByUsername(comments.getString("USERNAME")),
                                             comments.getString("CONTENT"));
+                    comment.markClean();
                     allComments.add(comment);
+                    commentsById.put(comment.getId(), comment);
                 } catch (ParseException ex) {
                     Logger.getLogger(Comment.class.getName()).log(Level.SEVERE, null, ex);
                 }
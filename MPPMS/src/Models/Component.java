@@ -1,18 +1,21 @@
 package Models;
 
-import Application.AppObservable;
+import Application.ModelChange;
 import Data.DatabaseConnector;
+import Data.IdAllocator;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Component extends Model {
     private static SetOfComponents allComponents = null;
+    private static final IdentityMap<Component> componentsById = new IdentityMap<>();
     
-    private SetOfAssets assets = new SetOfAssets();    
+    private LazyAssociation<SetOfAssets> assets = LazyAssociation.assets(new ArrayList<Object>());
     private int id;
     private String description;
     
@@ -43,60 +46,96 @@ public class Component extends Model {
     }
     
     public int getNumberOfAssets() {
-        return assets.size();
+        // Counted from the keys, so that listing Components does not load their Assets
+        return assets.getKeys().size();
     }
     
     public SetOfAssets getAssets() {
-        return assets;
+        return assets.get();
     }
     
     public void setAssets(SetOfAssets assets) {
-        this.assets = assets;
+        this.assets.set(assets);
     }
     
     public void addAsset(Asset asset) {
-        this.assets.add(asset);
+        this.assets.get().add(asset);
     }
     
-    public static void clearAndNullifyAll() {
-        if (allComponents != null) {
-            allComponents.clear();
-            allComponents = null;
+    public static synchronized void clearAndNullifyAll() {
+        componentsById.clear();
+        // The list is dropped rather than cleared, as other threads may still be iterating over it
+        allComponents = null;
+    }
+    
+    /**
+     * Puts a saved Component into the cache (if it has been loaded), replacing any other
+     * instance held for the same ID.
+     * 
+     * @param component The Component which has been saved.
+     */
+    private static synchronized void updateCache(Component component) {
+        if (allComponents == null) {
+            return;
+        }
+        Component cached = componentsById.get(component.getId());
+        if (cached != component) {
+            // Replace the list rather than changing it, as other threads may be iterating over it
+            SetOfComponents updated = new SetOfComponents();
+            updated.addAll(allComponents);
+            if (cached == null) {
+                updated.add(component);
+            }
+            else {
+                updated.set(updated.indexOf(cached), component);
+            }
+            allComponents = updated;
+            componentsById.put(component.getId(), component);
         }
     }
     
     @Override
-    public boolean save() {
-        DatabaseConnector dbConn = new DatabaseConnector();
-        boolean success;
+    protected boolean saveToDatabase() {
+        boolean success = true;
+        boolean isNew = (this.id == 0);
+        
+        if (!isNew && !hasChanges()) {
+            // Nothing has changed since the Component was loaded or last saved
+            return true;
+        }
         
-        if (this.id == 0) {
-            this.id = Component.getNextAvailableId();
-            success = dbConn.insertQuery(getAttributesAndValues(false));
+        DatabaseConnector dbConn = new DatabaseConnector();
+        ModelChange.Kind kind;
+
+        if (isNew) {
+            this.id = IdAllocator.getInstance().nextId("COMPONENTS");
+            recordNewIds(Collections.singletonList(this));
+            success &= (this.id != 0) && dbConn.insertQuery(getAttributesAndValues(true));
+            kind = ModelChange.Kind.Created;
         }
         else {
-            success = dbConn.updateQuery(getAttributesAndValues(true));
+            success &= dbConn.updateQuery(getChangedAttributesAndValues());
+            kind = ModelChange.Kind.Updated;
         }
         
-        success &= dbConn.deleteAndInsertQuery(getInnerAttributesAndValues(), "COMPONENT");
-                
+        success &= dbConn.updateLinksQuery(getChangedInnerAttributesAndValues(), "COMPONENT");
+        dbConn.dispose();
+        
         if (success) {
-            /*
-            Craig - Database content has changed so we tell the Subject to
-            update its Observers
-            */
-            AppObservable.getInstance().notifyObserversToRefresh();
+            // Keep the cache in step so that it need not be reloaded once this unit of work commits
+            updateCache(this);
+            recordChange(ModelChange.EntityType.Component, this.id, kind);
         }
         
         return success;
     }
 
     @Override
-    protected HashMap<String, String> getAttributesAndValues(final boolean includeId) {
-        return new HashMap<String, String>() {{
+    protected HashMap<String, Object> getAttributesAndValues(final boolean includeId) {
+        return new HashMap<String, Object>() {{
             put("TABLENAME", "COMPONENTS");
-            if (includeId) put("ID", "" + getId());
-            put("DESCRIPTION", wrapInSingleQuotes(getDescription()));
+            if (includeId) put("ID", getId());
+            put("DESCRIPTION", getDescription());
         }};
     }
     
@@ -105,12 +144,8 @@ public class Component extends Model {
         ArrayList<HashMap<String, Object>> attrVals = new ArrayList();
         attrVals.add(new HashMap<String, Object>() {{
             put("TABLENAME", "COMPONENTASSETS");
-            put("COMPONENTID", "" + getId());            
-            ArrayList<String> assetIds = new ArrayList();
-            for (Asset asset : getAssets()) {
-                assetIds.add("" + asset.getId());
-            }
-            put("ASSETID", assetIds);
+            put("COMPONENTID", getId());            
+            put("ASSETID", assets.getKeys());
         }});
         return attrVals;
     }
@@ -120,51 +155,49 @@ public class Component extends Model {
         return "(ID: " + getId() + ") " + getDescription();
     }
     
-    public static SetOfComponents getAllComponents() {
+    public static synchronized SetOfComponents getAllComponents() {
         if (allComponents == null) {
             populateComponents();
         }
         return allComponents;
     }
     
-    public static Component getComponentByID(int id) {
-        for (Component component : getAllComponents()) {
-            if (component.getId() == id) {
-                return component;
-            }
-        }
-        return null;
-    }
-    
-    private static int getNextAvailableId() {
-        int greatestId = 0;
-        for (Component component : getAllComponents()) {
-            greatestId = Math.max(greatestId, component.getId());
-        }
-        return greatestId + 1;
+    public static synchronized Component getComponentByID(int id) {
+        getAllComponents();
+        return componentsById.get(id);
     }
     
-    private static void populateComponents() {
+    /**
+     * Loads all Components and their Assets. The link table is read once in full and
+     * its keys are handed to the Components in memory, so the number of queries does
+     * not grow with the number of Components. The Assets are only loaded once a
+     * Component's Assets are first used.
+     */
+    private static synchronized void populateComponents() {
+        allComponents = new SetOfComponents();
+        componentsById.clear();
+        DatabaseConnector dbConn = new DatabaseConnector();
+        
         try {
-            allComponents = new SetOfComponents();
-            DatabaseConnector dbConn = new DatabaseConnector();
+            HashMap<Integer, ArrayList<Object>> componentAssets = dbConn.selectLinksQuery("COMPONENTASSETS", "COMPONENTID", "ASSETID");
             ResultSet components = dbConn.selectQuery("SELECT * FROM COMPONENTS");
             
             while (components.next()) {
                 Component component = new Component(components.getInt("ID"), components.getString("DESCRIPTION"));
-                DatabaseConnector dbConn2 = new DatabaseConnector();
-                ResultSet componentAssets = dbConn2.selectQuery("SELECT * FROM COMPONENTASSETS WHERE COMPONENTID = " + component.getId());
                 
-                while (componentAssets.next()) {
-                    component.addAsset(Asset.getAssetByID(componentAssets.getInt("ASSETID")));
-                }                
-                dbConn2.dispose();
+                // The Assets are only resolved to models when first used
+                if (componentAssets.containsKey(component.getId())) {
+                    component.assets = LazyAssociation.assets(componentAssets.get(component.getId()));
+                }
                 
+                component.markClean();
                 allComponents.add(component);
-            }                    
-            dbConn.dispose();
+                componentsById.put(component.getId(), component);
+            }
         } catch (SQLException ex) {
             Logger.getLogger(Component.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            dbConn.dispose();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package Models;
+
+import java.util.Arrays;
+
+/**
+ * Maps primary key IDs to the single in-memory instance of a model, giving O(1)
+ * lookups by ID. Keys are primitive ints held in an open addressing hash table,
+ * so lookups do not box the ID or allocate.
+ *
+ * IDs must be greater than 0 (0 is the ID of a model which has not been saved).
+ *
+ * @param <T> The type of model held in the map.
+ */
+public class IdentityMap<T> {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    public IdentityMap() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Gets the model with the given ID.
+     *
+     * @param id The model's ID.
+     * @return The model, or null if there is no model with that ID.
+     */
+    public T get(int id) {
+        if (id <= 0) {
+            return null;
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(id) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return cast(values[i]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a model, replacing any model already held with the same ID.
+     *
+     * @param id The model's ID.
+     * @param model The model.
+     */
+    public void put(int id, T model) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Cannot map a model with ID " + id);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = hash(id) & mask;
+        while (keys[i] != 0 && keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == 0) {
+            keys[i] = id;
+            size++;
+        }
+        values[i] = model;
+    }
+
+    /**
+     * Removes the model with the given ID, if there is one.
+     *
+     * @param id The model's ID.
+     * @return The model which was removed, or null.
+     */
+    public T remove(int id) {
+        if (id <= 0) {
+            return null;
+        }
+        int mask = keys.length - 1;
+        int i = hash(id) & mask;
+        while (keys[i] != id) {
+            if (keys[i] == 0) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+        T removed = cast(values[i]);
+        keys[i] = 0;
+        values[i] = null;
+        size--;
+
+        // Shift back any following entries whose probe sequence passed through the freed slot
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                keys[j] = 0;
+                values[j] = null;
+                i = j;
+            }
+        }
+        return removed;
+    }
+
+    public boolean containsId(int id) {
+        return get(id) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], cast(oldValues[i]));
+            }
+        }
+    }
+
+    /**
+     * The values array only ever holds models of type T.
+     */
+    @SuppressWarnings("unchecked")
+    private T cast(Object value) {
+        return (T)value;
+    }
+
+    private static int hash(int id) {
+        // Spread sequential IDs across the table
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
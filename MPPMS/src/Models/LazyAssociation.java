@@ -0,0 +1,199 @@
+package Models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A link from one model to another model (e.g. a Task's Report) or to a set of
+ * models (e.g. a Project's Tasks), which is only resolved the first time it is
+ * used. Loading a model therefore only records the keys (IDs or usernames) of the
+ * models it links to, so that, for instance, listing the Projects does not load
+ * every Task, Report and Comment as well.
+ *
+ * Until it is resolved, the keys can still be read (e.g. to save the links or to
+ * index the model) without resolving it. Once resolved, the keys are read from the
+ * linked models, so they follow any changes made to them. An association created
+ * with no keys (e.g. for a new model) resolves to an empty set.
+ *
+ * @param <T> The type of the linked model or set of models.
+ */
+public abstract class LazyAssociation<T> {
+    private ArrayList<Object> keys;
+    private T value = null;
+    private boolean loaded = false;
+
+    /**
+     * Creates an association which is resolved from the given keys when first used.
+     *
+     * @param keys The keys of the linked models, as stored in the database.
+     */
+    private LazyAssociation(ArrayList<Object> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Gets the linked model(s), resolving them if this is the first use.
+     *
+     * @return The linked model(s).
+     */
+    public synchronized T get() {
+        if (!loaded) {
+            value = load(keys);
+            loaded = true;
+            keys = null;
+        }
+        return value;
+    }
+
+    /**
+     * Replaces the linked model(s).
+     *
+     * @param value The linked model(s).
+     */
+    public synchronized void set(T value) {
+        this.value = value;
+        this.loaded = true;
+        this.keys = null;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Gets the keys of the linked models without resolving them.
+     *
+     * @return A new list of the keys, in order.
+     */
+    public synchronized ArrayList<Object> getKeys() {
+        return (loaded ? keysOf(value) : new ArrayList<>(keys));
+    }
+
+    protected abstract T load(List<Object> keys);
+
+    protected abstract ArrayList<Object> keysOf(T value);
+
+    /**
+     * Converts IDs read from the database to Integers, as SQLite may return another
+     * numeric type, so that they compare equal to the IDs of the linked models.
+     */
+    private static ArrayList<Object> toIds(List<Object> ids) {
+        ArrayList<Object> converted = new ArrayList<>();
+        for (Object id : ids) {
+            converted.add(((Number)id).intValue());
+        }
+        return converted;
+    }
+
+    public static LazyAssociation<SetOfAssets> assets(List<Object> ids) {
+        return new LazyAssociation<SetOfAssets>(toIds(ids)) {
+            @Override
+            protected SetOfAssets load(List<Object> ids) {
+                SetOfAssets assets = new SetOfAssets();
+                for (Object id : ids) {
+                    assets.add(Asset.getAssetByID((Integer)id));
+                }
+                return assets;
+            }
+
+            @Override
+            protected ArrayList<Object> keysOf(SetOfAssets assets) {
+                ArrayList<Object> ids = new ArrayList<>();
+                for (Asset asset : assets) {
+                    ids.add(asset.getId());
+                }
+                return ids;
+            }
+        };
+    }
+
+    public static LazyAssociation<SetOfComponents> components(List<Object> ids) {
+        return new LazyAssociation<SetOfComponents>(toIds(ids)) {
+            @Override
+            protected SetOfComponents load(List<Object> ids) {
+                SetOfComponents components = new SetOfComponents();
+                for (Object id : ids) {
+                    components.add(Component.getComponentByID((Integer)id));
+                }
+                return components;
+            }
+
+            @Override
+            protected ArrayList<Object> keysOf(SetOfComponents components) {
+                ArrayList<Object> ids = new ArrayList<>();
+                for (Component component : components) {
+                    ids.add(component.getId());
+                }
+                return ids;
+            }
+        };
+    }
+
+    public static LazyAssociation<SetOfTasks> tasks(List<Object> ids) {
+        return new LazyAssociation<SetOfTasks>(toIds(ids)) {
+            @Override
+            protected SetOfTasks load(List<Object> ids) {
+                SetOfTasks tasks = new SetOfTasks();
+                for (Object id : ids) {
+                    tasks.add(Task.getTaskByID((Integer)id));
+                }
+                return tasks;
+            }
+
+            @Override
+            protected ArrayList<Object> keysOf(SetOfTasks tasks) {
+                ArrayList<Object> ids = new ArrayList<>();
+                for (Task task : tasks) {
+                    ids.add(task.getId());
+                }
+                return ids;
+            }
+        };
+    }
+
+    public static LazyAssociation<SetOfUsers> users(List<Object> usernames) {
+        return new LazyAssociation<SetOfUsers>(new ArrayList<>(usernames)) {
+            @Override
+            protected SetOfUsers load(List<Object> usernames) {
+                SetOfUsers users = new SetOfUsers();
+                for (Object username : usernames) {
+                    users.add(User.getUserByUsername((String)username));
+                }
+                return users;
+            }
+
+            @Override
+            protected ArrayList<Object> keysOf(SetOfUsers users) {
+                ArrayList<Object> usernames = new ArrayList<>();
+                for (User user : users) {
+                    usernames.add(user.getUsername());
+                }
+                return usernames;
+            }
+        };
+    }
+
+    /**
+     * Creates a link to a single Report. Its keys hold the Report's ID (or null if
+     * there is no Report).
+     *
+     * @param id The Report's ID.
+     */
+    public static LazyAssociation<Report> report(int id) {
+        ArrayList<Object> ids = new ArrayList<>();
+        ids.add(id);
+        return new LazyAssociation<Report>(ids) {
+            @Override
+            protected Report load(List<Object> ids) {
+                return Report.getReportByID((Integer)ids.get(0));
+            }
+
+            @Override
+            protected ArrayList<Object> keysOf(Report report) {
+                ArrayList<Object> ids = new ArrayList<>();
+                ids.add(report == null ? null : report.getId());
+                return ids;
+            }
+        };
+    }
+}
@@ -1,7 +1,14 @@
 package Models;
 
+import Application.AppObservable;
+import Application.ModelChange;
+import Data.UnitOfWork;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Abstract super class for any model (Task, Component etc.) which is part of this application.
@@ -9,18 +16,348 @@ import java.util.HashMap;
  * @author Craig
  */
 public abstract class Model {
+    /**
+     * The changes recorded by the saves in the unit of work active on this thread.
+     */
+    private static final ThreadLocal<ArrayList<ModelChange>> pendingChanges = new ThreadLocal<>();
+    /**
+     * The new models given IDs by the saves in the unit of work active on this thread.
+     */
+    private static final ThreadLocal<ArrayList<Model>> pendingInserts = new ThreadLocal<>();
+    
+    /**
+     * The fields and links as they were when this model was last loaded or saved,
+     * or null if it has never been (e.g. a new model).
+     */
+    private HashMap<String, Object> savedAttributes = null;
+    private HashMap<Object, HashMap<String, Object>> savedLinks = null;
     
     /**
-     * This abstract method prepares the object for saving and then make
-     * a call to DatabaseConnector to update the database. If the save is successful,
-     * a call to AppObservable will be made to update all observers.
+     * Saves the object to the database. All writes, including those of any nested
+     * saves (e.g. the Comments saved by a Report), run inside a single UnitOfWork so 
+     * they are committed (or rolled back) together. Once the outermost save has 
+     * finished, a call to AppObservable will be made to update all observers with
+     * the changes that were committed.
      * 
      * @author Craig - TC B2c: Real time updates && TC B4: Persistence
      * @return true if saving to the database was successful, false if an error occurred.
-     * @see DatabaseConnector
+     * @see #saveToDatabase()
+     * @see UnitOfWork
      * @see AppObservable
      */
-    public abstract boolean save();
+    public boolean save() {
+        return saveAll(Collections.singletonList(this));
+    }
+    
+    /**
+     * Saves several models in a single UnitOfWork, so that they are committed (or
+     * rolled back) together, and then notifies observers of all of their changes at
+     * once. This is much quicker than saving them one at a time, as each save would
+     * otherwise be a transaction of its own.
+     * 
+     * @param models The models to save, in order.
+     * @return true if every model was saved, false if an error occurred (in which
+     * case none of them were).
+     * @see #save()
+     */
+    public static boolean saveAll(List<? extends Model> models) {
+        return saveAll(Collections.<Model>unmodifiableList(models), new BatchWriter<Model>() {
+            @Override
+            public boolean saveToDatabase(List<Model> models) {
+                for (Model model : models) {
+                    if (!model.saveToDatabase()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        });
+    }
+    
+    /**
+     * Writes a list of models of one type to the database together, e.g. by inserting
+     * the new ones as a single batch. Used by subclasses to save many models far more
+     * quickly than saveToDatabase() can one at a time.
+     * 
+     * @param <T> The type of model.
+     * @see #saveAll(List, BatchWriter)
+     */
+    protected interface BatchWriter<T extends Model> {
+        /**
+         * Writes the models, as saveToDatabase() would for each of them. Called inside
+         * a UnitOfWork.
+         * 
+         * @param models The models to write.
+         * @return true if all database writes were successful, false if an error occurred.
+         */
+        boolean saveToDatabase(List<T> models);
+    }
+    
+    /**
+     * Saves several models in a single UnitOfWork using a BatchWriter, then records
+     * them all as saved.
+     * 
+     * @param models The models to save.
+     * @param writer Writes the models to the database.
+     * @return true if every model was saved, false if an error occurred (in which
+     * case none of them were).
+     */
+    protected static <T extends Model> boolean saveAll(List<T> models, BatchWriter<T> writer) {
+        UnitOfWork work = beginSave();
+        boolean success = false;
+        
+        try {
+            if (writer.saveToDatabase(models)) {
+                for (Model model : models) {
+                    model.markClean(work);
+                }
+                success = true;
+            }
+        } finally {
+            // Rolled back if a save failed or threw
+            success = work.end(success);
+        }
+        
+        return success;
+    }
+    
+    /**
+     * A group of saves which must succeed or fail together.
+     * 
+     * @see #saveTogether(SaveGroup)
+     */
+    public interface SaveGroup {
+        /**
+         * Makes the saves.
+         * 
+         * @return true if they were all successful, else false.
+         */
+        boolean save();
+    }
+    
+    /**
+     * Makes a group of saves (e.g. of new Assets and then of Tasks which link to
+     * them) in a single UnitOfWork, so that they are committed (or rolled back)
+     * together and observers are told about all of their changes at once.
+     * 
+     * @param saves The saves to make.
+     * @return true if every save was successful, false if an error occurred (in
+     * which case none of them were).
+     */
+    public static boolean saveTogether(SaveGroup saves) {
+        UnitOfWork work = beginSave();
+        boolean success = false;
+        
+        try {
+            success = saves.save();
+        } finally {
+            success = work.end(success);
+        }
+        
+        return success;
+    }
+    
+    /**
+     * Begins (or joins) the UnitOfWork for a save. The first save in a unit of work
+     * arranges for observers to be told once the outermost participant has ended
+     * it, so saves which are grouped into one unit of work (by any caller) are
+     * committed and announced together.
+     */
+    private static UnitOfWork beginSave() {
+        UnitOfWork work = UnitOfWork.begin();
+        if (pendingChanges.get() == null) {
+            final ArrayList<ModelChange> changes = new ArrayList<>();
+            final ArrayList<Model> inserts = new ArrayList<>();
+            pendingChanges.set(changes);
+            pendingInserts.set(inserts);
+            
+            /*
+            Craig - Database content has changed so we tell the Subject to
+            update its Observers. The saves have already brought the in-memory
+            caches up to date, so only the changes are passed on. After a rollback
+            the caches may hold edits which were never committed, so they are
+            cleared and reloaded instead.
+            */
+            work.onCommit(new Runnable() {
+                @Override
+                public void run() {
+                    pendingChanges.remove();
+                    pendingInserts.remove();
+                    if (!changes.isEmpty()) {
+                        AppObservable.getInstance().notifyObserversOfChanges(changes);
+                    }
+                }
+            });
+            work.onRollback(new Runnable() {
+                @Override
+                public void run() {
+                    pendingChanges.remove();
+                    pendingInserts.remove();
+                    // The rows were never inserted, so the next save must insert them again
+                    for (Model model : inserts) {
+                        model.setId(0);
+                    }
+                    AppObservable.getInstance().notifyObserversToRefresh();
+                }
+            });
+        }
+        return work;
+    }
+    
+    /**
+     * This abstract method prepares the object for saving and then makes calls to 
+     * DatabaseConnector to update the database. Called by save() inside a UnitOfWork;
+     * any DatabaseConnector created here joins the unit of work's transaction.
+     * 
+     * @author Craig - TC B4: Persistence
+     * @return true if all database writes were successful, false if an error occurred.
+     * @see #save()
+     * @see DatabaseConnector
+     */
+    protected abstract boolean saveToDatabase();
+    
+    /**
+     * Sets the ID the model is saved under. Set back to 0 for a new model whose
+     * insert was rolled back.
+     * 
+     * @param id The ID.
+     */
+    protected abstract void setId(int id);
+    
+    /**
+     * Records that new models have just been given IDs to be inserted under, so
+     * that their IDs are set back to 0 if the unit of work is rolled back.
+     * 
+     * @param models The models.
+     */
+    protected static void recordNewIds(List<? extends Model> models) {
+        ArrayList<Model> inserts = pendingInserts.get();
+        if (inserts != null) {
+            inserts.addAll(models);
+        }
+    }
+    
+    /**
+     * Indicates whether this model differs from the database, i.e. whether any of its
+     * fields or links have changed since it was last loaded or saved. A model which
+     * has never been saved has always changed.
+     * 
+     * @return true if saving the model would write anything, else false.
+     */
+    public boolean hasChanges() {
+        return (savedAttributes == null
+                || !getAttributesAndValues(true).equals(savedAttributes)
+                || !getChangedInnerAttributesAndValues().isEmpty());
+    }
+    
+    /**
+     * Records the model's fields and links as those in the database, so that later
+     * saves only write what has changed since. Called for each model as it is loaded,
+     * and by save().
+     */
+    protected void markClean() {
+        if (!isComplete()) {
+            // A model which cannot be written as it stands (e.g. its manager no longer
+            // exists) is treated as changed
+            savedAttributes = null;
+            savedLinks = null;
+            return;
+        }
+        savedAttributes = getAttributesAndValues(true);
+        savedLinks = new HashMap<>();
+        for (HashMap<String, Object> links : getInnerAttributesAndValues()) {
+            savedLinks.put(links.get("TABLENAME"), links);
+        }
+    }
+    
+    /**
+     * Indicates whether the fields which are written to the database are all set.
+     * Models with fields that may be left unset when they are loaded (e.g. a User
+     * who no longer exists) override this.
+     * 
+     * @return true if the model's fields can be written, else false.
+     */
+    protected boolean isComplete() {
+        return true;
+    }
+    
+    /**
+     * Records the model as saved in a unit of work, restoring the previous record if
+     * that unit of work is rolled back (as the database then still holds the old values).
+     */
+    private void markClean(UnitOfWork work) {
+        final HashMap<String, Object> previousAttributes = savedAttributes;
+        final HashMap<Object, HashMap<String, Object>> previousLinks = savedLinks;
+        markClean();
+        work.onRollback(new Runnable() {
+            @Override
+            public void run() {
+                savedAttributes = previousAttributes;
+                savedLinks = previousLinks;
+            }
+        });
+    }
+    
+    /**
+     * Gets the fields which have changed since the model was last loaded or saved,
+     * for use in an update query.
+     * 
+     * @return The TABLENAME, ID and changed fields (all of them if the model has never
+     * been loaded or saved).
+     * @see #getAttributesAndValues(boolean)
+     */
+    protected HashMap<String, Object> getChangedAttributesAndValues() {
+        HashMap<String, Object> attrVals = getAttributesAndValues(true);
+        if (savedAttributes == null) {
+            return attrVals;
+        }
+        HashMap<String, Object> changed = new HashMap<>();
+        for (Map.Entry<String, Object> attrVal : attrVals.entrySet()) {
+            String field = attrVal.getKey();
+            if (field.equals("TABLENAME") || field.equals("ID") 
+                    || !Objects.equals(attrVal.getValue(), savedAttributes.get(field))) {
+                changed.put(field, attrVal.getValue());
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Gets the link tables whose links have changed since the model was last loaded
+     * or saved, for use in DatabaseConnector.updateLinksQuery().
+     * 
+     * @return The changed link tables (all of them if the model has never been loaded
+     * or saved).
+     * @see #getInnerAttributesAndValues()
+     */
+    protected ArrayList<HashMap<String, Object>> getChangedInnerAttributesAndValues() {
+        ArrayList<HashMap<String, Object>> attrVals = getInnerAttributesAndValues();
+        if (savedLinks == null) {
+            return attrVals;
+        }
+        ArrayList<HashMap<String, Object>> changed = new ArrayList<>();
+        for (HashMap<String, Object> links : attrVals) {
+            if (!links.equals(savedLinks.get(links.get("TABLENAME")))) {
+                changed.add(links);
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Records a change made by saveToDatabase() so that observers can be told about
+     * it once the unit of work has been committed.
+     * 
+     * @param entityType The type of model which was saved.
+     * @param id The ID of the saved model.
+     * @param kind Whether the model was created or updated.
+     */
+    protected static void recordChange(ModelChange.EntityType entityType, int id, ModelChange.Kind kind) {
+        ArrayList<ModelChange> changes = pendingChanges.get();
+        if (changes != null) {
+            changes.add(new ModelChange(entityType, id, kind));
+        }
+    }
     
     /**
      * Populates and returns a HashMap of all fields and values required for modifying 
@@ -29,12 +366,12 @@ public abstract class Model {
      * @author Craig - TC B4: Persistence
      * @param includeId indicates whether or not the ID field / value is added to 
      * the HashMap (typically true for update queries and false for insert queries).
-     * @return Hashmap of <String, String> (Database field name and value) for use in 
-     * DatabaseConnector. 
+     * @return Hashmap of <String, Object> (Database field name and value) for use in 
+     * DatabaseConnector. Values are bound to the query as parameters so must not be quoted.
      * @see #save()
      * @see DatabaseConnector
      */
-    protected abstract HashMap<String, String> getAttributesAndValues(final boolean includeId);
+    protected abstract HashMap<String, Object> getAttributesAndValues(final boolean includeId);
     
     /**
      * Populates and returns HashMaps of fields and values for inner Models (e.g. 
@@ -42,21 +379,10 @@ public abstract class Model {
      * 
      * @author Craig - TC B4: Persistence
      * @return ArrayList of HashMaps of <String, Object> containing all necessary 
-     * fields and values for updating database link tables.
+     * fields and values for updating database link tables (empty for a model without
+     * any links).
      * @see #save()
      * @see DatabaseConnector
      */
     protected abstract ArrayList<HashMap<String, Object>> getInnerAttributesAndValues();
-    
-    /**
-     * Utility method to wrap a string in single quotes (place a single quote both 
-     * at the beginning and at the wend of the string).
-     * 
-     * @author Craig - TC B4: Persistence
-     * @param str The string to surround with single quotes
-     * @return The original string surrounded by single quotes.
-     */
-    protected String wrapInSingleQuotes(String str) {
-        return "'" + str + "'";
-    }
 }
@@ -1,13 +1,16 @@
 package Models;
 
-import Application.AppObservable;
+import Application.ModelChange;
 import Data.DatabaseConnector;
+import Data.IdAllocator;
 import Models.User.Role;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.logging.Level;
@@ -15,6 +18,8 @@ import java.util.logging.Logger;
 
 public class Project extends Model {
     private static SetOfProjects allProjects = null;
+    private static final IdentityMap<Project> projectsById = new IdentityMap<>();
+    private static final BitSetIndex<String> projectsByMember = new BitSetIndex<>();
     
     private final Date creationDate;
     
@@ -22,11 +27,11 @@ public class Project extends Model {
     private String title;    
     private User manager;
     private User coordinator;
-    private SetOfUsers team = new SetOfUsers();
+    private LazyAssociation<SetOfUsers> team = LazyAssociation.users(new ArrayList<Object>());
     private Date deadline;
     private Priority priority;
-    private SetOfTasks tasks = new SetOfTasks();
-    private SetOfComponents components = new SetOfComponents();
+    private LazyAssociation<SetOfTasks> tasks = LazyAssociation.tasks(new ArrayList<Object>());
+    private LazyAssociation<SetOfComponents> components = LazyAssociation.components(new ArrayList<Object>());
     private User client;
     
     public enum Priority {
@@ -101,15 +106,15 @@ public class Project extends Model {
     }
 
     public SetOfUsers getTeam() {
-        return team;
+        return team.get();
     }
 
     public void setTeam(SetOfUsers team) {
-        this.team = team;
+        this.team.set(team);
     }
     
     public void addTeamMember(User user) {
-        this.team.add(user);
+        this.team.get().add(user);
     }
 
     public Date getDeadline() {
@@ -129,74 +134,149 @@ public class Project extends Model {
     }
 
     public SetOfTasks getTasks() {
-        return tasks;
+        return tasks.get();
     }
 
     public void setTasks(SetOfTasks tasks) {
-        this.tasks = tasks;
+        this.tasks.set(tasks);
     }
     
     public void addTask(Task task) {
-        this.tasks.add(task);
+        this.tasks.get().add(task);
     }
 
     public SetOfComponents getComponents() {
-        return components;
+        return components.get();
     }
 
     public void setComponents(SetOfComponents components) {
-        this.components = components;
+        this.components.set(components);
     }
     
     public void addComponent(Component component) {
-        this.components.add(component);
+        this.components.get().add(component);
     }
     
-    public static void clearAndNullifyAll() {
-        if (allProjects != null) {
-            allProjects.clear();
-            allProjects = null;
+    public static synchronized void clearAndNullifyAll() {
+        projectsById.clear();
+        projectsByMember.clear();
+        // The list is dropped rather than cleared, as other threads may still be iterating over it
+        allProjects = null;
+    }
+    
+    /**
+     * Puts a saved Project into the cache (if it has been loaded), replacing any other
+     * instance held for the same ID.
+     * 
+     * @param project The Project which has been saved.
+     */
+    private static synchronized void updateCache(Project project) {
+        if (allProjects == null) {
+            return;
+        }
+        Project cached = projectsById.get(project.getId());
+        if (cached != project) {
+            // Replace the list rather than changing it, as other threads may be iterating over it
+            SetOfProjects updated = new SetOfProjects();
+            updated.addAll(allProjects);
+            if (cached == null) {
+                updated.add(project);
+            }
+            else {
+                updated.set(updated.indexOf(cached), project);
+            }
+            allProjects = updated;
+            projectsById.put(project.getId(), project);
+        }
+        index(project);
+    }
+    
+    /**
+     * Adds a Project to (or updates it in) the membership index, under the usernames
+     * of its manager, coordinator, client and team.
+     * 
+     * @param project The Project, as loaded or saved.
+     */
+    private static void index(Project project) {
+        ArrayList<String> usernames = new ArrayList<>();
+        for (User user : new User[] { project.getManager(), project.getCoordinator(), project.getClient() }) {
+            if (user != null) {
+                usernames.add(user.getUsername());
+            }
+        }
+        for (Object username : project.team.getKeys()) {
+            usernames.add((String)username);
         }
+        projectsByMember.put(project.getId(), usernames);
+    }
+    
+    /**
+     * Gets the Projects with the given IDs, in ID order.
+     * 
+     * @param ids The IDs, typically from the membership index.
+     * @return The Projects.
+     */
+    private static SetOfProjects getProjectsByIds(BitSet ids) {
+        SetOfProjects projects = new SetOfProjects();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            projects.add(projectsById.get(id));
+        }
+        return projects;
     }
     
     @Override
-    public boolean save() {
-        DatabaseConnector dbConn = new DatabaseConnector();
-        boolean success;
+    protected boolean saveToDatabase() {
+        boolean success = true;
+        boolean isNew = (this.id == 0);
         
-        if (this.id == 0) {
-            this.id = Project.getNextAvailableID();
-            success = dbConn.insertQuery(getAttributesAndValues(false));
+        if (!isNew && !hasChanges()) {
+            // Nothing has changed since the Project was loaded or last saved
+            return true;
+        }
+        
+        DatabaseConnector dbConn = new DatabaseConnector();
+        ModelChange.Kind kind;
+
+        if (isNew) {
+            this.id = IdAllocator.getInstance().nextId("PROJECTS");
+            recordNewIds(Collections.singletonList(this));
+            success &= (this.id != 0) && dbConn.insertQuery(getAttributesAndValues(true));
+            kind = ModelChange.Kind.Created;
         }
         else {
-            success = dbConn.updateQuery(getAttributesAndValues(true));
+            success &= dbConn.updateQuery(getChangedAttributesAndValues());
+            kind = ModelChange.Kind.Updated;
         }
         
-        success &= dbConn.deleteAndInsertQuery(getInnerAttributesAndValues(), "PROJECT");
+        success &= dbConn.updateLinksQuery(getChangedInnerAttributesAndValues(), "PROJECT");
+        dbConn.dispose();
         
         if (success) {
-            /*
-            Craig - Database content has changed so we tell the Subject to
-            update its Observers
-            */
-            AppObservable.getInstance().notifyObserversToRefresh();
+            // Keep the cache in step so that it need not be reloaded once this unit of work commits
+            updateCache(this);
+            recordChange(ModelChange.EntityType.Project, this.id, kind);
         }
         
         return success;
     }
 
     @Override
-    protected HashMap<String, String> getAttributesAndValues(final boolean includeId) {
-        return new HashMap<String, String>() {{
+    protected boolean isComplete() {
+        return (manager != null && coordinator != null && client != null);
+    }
+
+    @Override
+    protected HashMap<String, Object> getAttributesAndValues(final boolean includeId) {
+        return new HashMap<String, Object>() {{
             put("TABLENAME", "PROJECTS");
-            if (includeId) put("ID", "" + getId());
-            put("TITLE", wrapInSingleQuotes(getTitle()));
-            put("CREATIONDATE", wrapInSingleQuotes(new SimpleDateFormat("dd MMM yyyy").format(getCreationDate())));
-            put("DEADLINEDATE", wrapInSingleQuotes(new SimpleDateFormat("dd MMM yyyy").format(getDeadline())));
-            put("PRIORITY", wrapInSingleQuotes(getPriority().toString()));
-            put("MANAGER", "" + wrapInSingleQuotes(getManager().getUsername()));
-            put("COORDINATOR", wrapInSingleQuotes(getCoordinator().getUsername()));
-            put("CLIENT", wrapInSingleQuotes(getClient().getUsername()));
+            if (includeId) put("ID", getId());
+            put("TITLE", getTitle());
+            put("CREATIONDATE", new SimpleDateFormat("dd MMM yyyy").format(getCreationDate()));
+            put("DEADLINEDATE", new SimpleDateFormat("dd MMM yyyy").format(getDeadline()));
+            put("PRIORITY", getPriority().toString());
+            put("MANAGER", getManager().getUsername());
+            put("COORDINATOR", getCoordinator().getUsername());
+            put("CLIENT", getClient().getUsername());
         }};
     }
 
@@ -205,30 +285,18 @@ public class Project extends Model {
         ArrayList<HashMap<String, Object>> attrVals = new ArrayList();
         attrVals.add(new HashMap<String, Object>() {{
             put("TABLENAME", "PROJECTTEAM");
-            put("PROJECTID", "" + getId());            
-            ArrayList<String> usernames = new ArrayList();
-            for (User user : getTeam()) {
-                usernames.add(wrapInSingleQuotes(user.getUsername()));
-            }
-            put("USERNAME", usernames);
+            put("PROJECTID", getId());            
+            put("USERNAME", team.getKeys());
         }});
         attrVals.add(new HashMap<String, Object>() {{
             put("TABLENAME", "PROJECTTASKS");
-            put("PROJECTID", "" + getId());            
-            ArrayList<String> taskIds = new ArrayList();
-            for (Task task : getTasks()) {
-                taskIds.add("" + task.getId());
-            }
-            put("TASKID", taskIds);
+            put("PROJECTID", getId());            
+            put("TASKID", tasks.getKeys());
         }});
         attrVals.add(new HashMap<String, Object>() {{
             put("TABLENAME", "PROJECTCOMPONENTS");
-            put("PROJECTID", "" + getId());            
-            ArrayList<String> componentIds = new ArrayList();
-            for (Component component : getComponents()) {
-                componentIds.add("" + component.getId());
-            }
-            put("COMPONENTID", componentIds);
+            put("PROJECTID", getId());            
+            put("COMPONENTID", components.getKeys());
         }});
         return attrVals;
     }
@@ -238,45 +306,44 @@ public class Project extends Model {
         return "(ID: " + getId() + ") " + getTitle();
     }
     
-    public static SetOfProjects getAllProjects() {
+    public static synchronized SetOfProjects getAllProjects() {
         if (allProjects == null) {
             populateProjects();
         }
         return allProjects;
     }
     
-    public static SetOfProjects getProjectsForUser(User user) {
-        SetOfProjects projects = new SetOfProjects();
-        for (Project project : getAllProjects()) {
-            if (user.getRole() == Role.ProjectManager || project.getManager() == user 
-                    || project.getCoordinator() == user || project.getTeam().contains(user)) {
-                projects.add(project);
-            }
+    public static synchronized SetOfProjects getProjectsForUser(User user) {
+        if (user.getRole() == Role.ProjectManager) {
+            SetOfProjects projects = new SetOfProjects();
+            projects.addAll(getAllProjects());
+            return projects;
         }
-        return projects;
+        getAllProjects();
+        return getProjectsByIds(projectsByMember.get(user.getUsername()));
     }
     
-    public static Project getProjectById(int id) {
-        for (Project project : getAllProjects()) {
-            if (project.getId() == id) {
-                return project;
-            }
-        }
-        return null;
+    public static synchronized Project getProjectById(int id) {
+        getAllProjects();
+        return projectsById.get(id);
     }
     
-    private static int getNextAvailableID() {
-        int greatestId = 0;
-        for (Project project : getAllProjects()) {
-            greatestId = Math.max(greatestId, project.getId());
-        }
-        return greatestId + 1;
-    }
-    
-    private static void populateProjects() {
+    /**
+     * Loads all Projects and their links. Each link table is read once in full and
+     * its keys are handed to the Projects in memory, so the number of queries does not
+     * grow with the number of Projects. The linked Users, Tasks and Components are only
+     * loaded once a Project's links are first used.
+     */
+    private static synchronized void populateProjects() {
+        allProjects = new SetOfProjects();
+        projectsById.clear();
+        projectsByMember.clear();
+        DatabaseConnector dbConn = new DatabaseConnector();
+        
         try {
-            allProjects = new SetOfProjects();
-            DatabaseConnector dbConn = new DatabaseConnector();
+            HashMap<Integer, ArrayList<Object>> projectTeams = dbConn.selectLinksQuery("PROJECTTEAM", "PROJECTID", "USERNAME");
+            HashMap<Integer, ArrayList<Object>> projectTasks = dbConn.selectLinksQuery("PROJECTTASKS", "PROJECTID", "TASKID");
+            HashMap<Integer, ArrayList<Object>> projectComponents = dbConn.selectLinksQuery("PROJECTCOMPONENTS", "PROJECTID", "COMPONENTID");
             ResultSet projects = dbConn.selectQuery("SELECT * FROM PROJECTS");
             
             while (projects.next()) {
@@ -291,37 +358,31 @@ public class Project extends Model {
                     project.setTitle(projects.getString("TITLE"));
                 } catch (ParseException ex) {
                     Logger.getLogger(Project.class.getName()).log(Level.SEVERE, null, ex);
+                    continue;
                 }
                 
-                DatabaseConnector dbConn2 = new DatabaseConnector();
-                ResultSet projectTeam = dbConn2.selectQuery("SELECT * FROM PROJECTTEAM WHERE PROJECTID = " + project.getId());
-                
-                while (projectTeam.next()) {
-                    project.addTeamMember(User.getUserByUsername(projectTeam.getString("USERNAME")));
+                // The links are only resolved to models when first used
+                if (projectTeams.containsKey(project.getId())) {
+                    project.team = LazyAssociation.users(projectTeams.get(project.getId()));
                 }
-                dbConn2.dispose();
                 
-                DatabaseConnector dbConn3 = new DatabaseConnector();
-                ResultSet projectTasks = dbConn3.selectQuery("SELECT * FROM PROJECTTASKS WHERE PROJECTID = " + project.getId());
-                
-                while (projectTasks.next()) {
-                    project.addTask(Task.getTaskByID(projectTasks.getInt("TASKID")));
+                if (projectTasks.containsKey(project.getId())) {
+                    project.tasks = LazyAssociation.tasks(projectTasks.get(project.getId()));
                 }
-                dbConn3.dispose();
-                
-                DatabaseConnector dbConn4 = new DatabaseConnector();
-                ResultSet projectComponents = dbConn4.selectQuery("SELECT * FROM PROJECTCOMPONENTS WHERE PROJECTID = " + project.getId());
                 
-                while (projectComponents.next()) {
-                    project.addComponent(Component.getComponentByID(projectComponents.getInt("COMPONENTID")));
+                if (projectComponents.containsKey(project.getId())) {
+                    project.components = LazyAssociation.components(projectComponents.get(project.getId()));
                 }
-                dbConn4.dispose();
                 
+                project.markClean();
                 allProjects.add(project);
-            }                    
-            dbConn.dispose();
+                projectsById.put(project.getId(), project);
+                index(project);
+            }
         } catch (SQLException ex) {
             Logger.getLogger(Project.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            dbConn.dispose();
         }
     }
 }
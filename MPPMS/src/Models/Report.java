@@ -1,18 +1,22 @@
 package Models;
 
-import Application.AppObservable;
+import Application.ModelChange;
 import Data.DatabaseConnector;
+import Data.IdAllocator;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Report extends Model {
     private static SetOfReports allReports = null;
+    private static final IdentityMap<Report> reportsById = new IdentityMap<>();
     
     private int id;
     private SetOfComments comments;
@@ -32,6 +36,11 @@ public class Report extends Model {
     public int getId() {
         return id;
     }
+
+    @Override
+    protected void setId(int id) {
+        this.id = id;
+    }
     
     public String getTitle() {
         return this.title;
@@ -65,50 +74,172 @@ public class Report extends Model {
         return this.comments;
     }
     
-    public static void clearAndNullifyAll() {
-        if (allReports != null) {
-            allReports.clear();
-            allReports = null;
+    public static synchronized void clearAndNullifyAll() {
+        reportsById.clear();
+        // The list is dropped rather than cleared, as other threads may still be iterating over it
+        allReports = null;
+    }
+    
+    /**
+     * Puts a saved Report into the cache (if it has been loaded), replacing any other
+     * instance held for the same ID.
+     * 
+     * @param report The Report which has been saved.
+     */
+    private static void updateCache(Report report) {
+        updateCache(Collections.singletonList(report));
+    }
+    
+    /**
+     * Puts saved Reports into the cache (if it has been loaded), replacing any other
+     * instances held for the same IDs. The list is only copied once, however many
+     * Reports there are.
+     * 
+     * @param reports The Reports which have been saved.
+     */
+    private static synchronized void updateCache(List<Report> reports) {
+        if (allReports == null) {
+            return;
+        }
+        SetOfReports updated = null;
+        for (Report report : reports) {
+            Report cached = reportsById.get(report.getId());
+            if (cached != report) {
+                // Replace the list rather than changing it, as other threads may be iterating over it
+                if (updated == null) {
+                    updated = new SetOfReports();
+                    updated.addAll(allReports);
+                }
+                if (cached == null) {
+                    updated.add(report);
+                }
+                else {
+                    updated.set(updated.indexOf(cached), report);
+                }
+                reportsById.put(report.getId(), report);
+            }
+        }
+        if (updated != null) {
+            allReports = updated;
         }
     }
     
+    /**
+     * Saves several Reports in a single transaction, inserting the new ones (and
+     * their links to their Comments) as a single batch.
+     * 
+     * @param reports The Reports to save.
+     * @return true if every Report was saved, false if an error occurred (in which
+     * case none of them were).
+     * @see Task#saveAll(SetOfTasks)
+     */
+    static boolean saveAll(SetOfReports reports) {
+        return saveAll(reports, new BatchWriter<Report>() {
+            @Override
+            public boolean saveToDatabase(List<Report> reports) {
+                SetOfReports created = new SetOfReports();
+                for (Report report : reports) {
+                    if (report.id != 0) {
+                        if (!report.saveToDatabase()) {
+                            return false;
+                        }
+                        continue;
+                    }
+                    for (Comment comment : report.getComments()) {
+                        if (!comment.save()) {
+                            return false;
+                        }
+                    }
+                    created.add(report);
+                }
+                return insertAll(created);
+            }
+        });
+    }
+    
+    /**
+     * Inserts new Reports, and their links to their (saved) Comments, as a single batch.
+     */
+    private static boolean insertAll(SetOfReports reports) {
+        if (reports.isEmpty()) {
+            return true;
+        }
+        int firstId = IdAllocator.getInstance().nextIds("REPORTS", reports.size());
+        if (firstId == 0) {
+            return false;
+        }
+        
+        ArrayList<HashMap<String, Object>> rows = new ArrayList<>();
+        ArrayList<HashMap<String, Object>> links = new ArrayList<>();
+        for (int i = 0; i < reports.size(); i++) {
+            Report report = reports.get(i);
+            report.id = firstId + i;
+            rows.add(report.getAttributesAndValues(true));
+            links.addAll(report.getInnerAttributesAndValues());
+        }
+        recordNewIds(reports);
+        
+        DatabaseConnector dbConn = new DatabaseConnector();
+        boolean success = dbConn.insertAllQuery(rows);
+        success &= dbConn.insertLinksQuery(links, "REPORT");
+        dbConn.dispose();
+        
+        if (success) {
+            updateCache(reports);
+            for (Report report : reports) {
+                recordChange(ModelChange.EntityType.Report, report.id, ModelChange.Kind.Created);
+            }
+        }
+        
+        return success;
+    }
+    
     @Override
-    public boolean save() {
+    protected boolean saveToDatabase() {
         boolean success = true;
+        boolean isNew = (this.id == 0);
         
         for (Comment comment : getComments()) {
             success &= comment.save();
         }
         
-        DatabaseConnector dbConn = new DatabaseConnector();
+        if (!isNew && !hasChanges()) {
+            // Nothing has changed since the Report was loaded or last saved
+            return success;
+        }
         
-        if (this.id == 0){
-            this.id = Report.getNextAvailableID();
-            success &= dbConn.insertQuery(getAttributesAndValues(false));
+        DatabaseConnector dbConn = new DatabaseConnector();
+        ModelChange.Kind kind;
+
+        if (isNew) {
+            this.id = IdAllocator.getInstance().nextId("REPORTS");
+            recordNewIds(Collections.singletonList(this));
+            success &= (this.id != 0) && dbConn.insertQuery(getAttributesAndValues(true));
+            kind = ModelChange.Kind.Created;
         }
         else {
-            success &= dbConn.updateQuery(getAttributesAndValues(true));
+            success &= dbConn.updateQuery(getChangedAttributesAndValues());
+            kind = ModelChange.Kind.Updated;
         }
         
-        success &= dbConn.deleteAndInsertQuery(getInnerAttributesAndValues(), "REPORT");
+        success &= dbConn.updateLinksQuery(getChangedInnerAttributesAndValues(), "REPORT");
+        dbConn.dispose();
         
         if (success) {
-            /*
-            Craig - Database content has changed so we tell the Subject to
-            update its Observers
-            */
-            AppObservable.getInstance().notifyObserversToRefresh();
+            // Keep the cache in step so that it need not be reloaded once this unit of work commits
+            updateCache(this);
+            recordChange(ModelChange.EntityType.Report, this.id, kind);
         }
         
         return success;
     }
 
     @Override
-    protected HashMap<String, String> getAttributesAndValues(final boolean includeId) {
-        return new HashMap<String, String>() {{
+    protected HashMap<String, Object> getAttributesAndValues(final boolean includeId) {
+        return new HashMap<String, Object>() {{
             put("TABLENAME", "REPORTS");
-            if (includeId) put("ID", "" + getId());
-            put("TITLE", wrapInSingleQuotes(getTitle()));
+            if (includeId) put("ID", getId());
+            put("TITLE", getTitle());
         }};
     }
 
@@ -117,63 +248,60 @@ public class Report extends Model {
         ArrayList<HashMap<String, Object>> attrVals = new ArrayList();
         attrVals.add(new HashMap<String, Object>() {{
             put("TABLENAME", "REPORTCOMMENTS");
-            put("REPORTID", "" + getId());            
-            ArrayList<String> comments = new ArrayList();
+            put("REPORTID", getId());            
+            ArrayList<Object> comments = new ArrayList<>();
             for (Comment comment : getComments()) {
-                comments.add("" + comment.getId());
+                comments.add(comment.getId());
             }
             put("COMMENTID", comments);
         }});
         return attrVals;
     }
     
-    public static SetOfReports getAllReports() {
+    public static synchronized SetOfReports getAllReports() {
         if (allReports == null) {
             populateReports();
         }
         return allReports;
     }
     
-    public static Report getReportByID(int id) {
-        for (Report report: getAllReports()) {
-            if (report.getId() == id) {
-                return report;
-            }
-        }
-        return null;
-    }
-    
-    private static int getNextAvailableID() {
-        int greatestId = 0;
-        for (Report report : getAllReports()) {
-            greatestId = Math.max(greatestId, report.getId());
-        }
-        return greatestId + 1;
+    public static synchronized Report getReportByID(int id) {
+        getAllReports();
+        return reportsById.get(id);
     }
     
-    private static void populateReports() {
+    /**
+     * Loads all Reports and their Comments. The link table is read once in full and
+     * stitched to its Reports in memory, so the number of queries does not grow with
+     * the number of Reports.
+     */
+    private static synchronized void populateReports() {
+        allReports = new SetOfReports();
+        reportsById.clear();
+        DatabaseConnector dbConn = new DatabaseConnector();
+        
         try {
-            allReports = new SetOfReports();
-            DatabaseConnector dbConn = new DatabaseConnector();
+            HashMap<Integer, ArrayList<Object>> reportComments = dbConn.selectLinksQuery("REPORTCOMMENTS", "REPORTID", "COMMENTID");
             ResultSet reports = dbConn.selectQuery("SELECT * FROM REPORTS");
             
             while (reports.next()) {
                 Report report = new Report(reports.getInt("ID"));
                 report.setTitle(reports.getString("TITLE"));
                 
-                DatabaseConnector dbConn2 = new DatabaseConnector();
-                ResultSet reportComments = dbConn2.selectQuery("SELECT * FROM REPORTCOMMENTS WHERE REPORTID = " + report.getId());
-                
-                while (reportComments.next()) {
-                    report.addComment(Comment.getCommentByID(reportComments.getInt("COMMENTID")));
+                if (reportComments.containsKey(report.getId())) {
+                    for (Object commentId : reportComments.get(report.getId())) {
+                        report.addComment(Comment.getCommentByID(((Number)commentId).intValue()));
+                    }
                 }
-                dbConn2.dispose();
                 
+                report.markClean();
                 allReports.add(report);
+                reportsById.put(report.getId(), report);
             }
-            dbConn.dispose();
         } catch (SQLException ex) {
             Logger.getLogger(Report.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            dbConn.dispose();
         }
     }
 }
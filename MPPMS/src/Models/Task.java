@@ -1,26 +1,36 @@
 package Models;
 
-import Application.AppObservable;
+import Application.ModelChange;
 import Data.DatabaseConnector;
+import Data.IdAllocator;
+import Data.UnitOfWork;
 import Models.User.Role;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Task extends Model {
     private static SetOfTasks allTasks = null;
+    private static final IdentityMap<Task> tasksById = new IdentityMap<>();
+    private static final BitSetIndex<Status> tasksByStatus = new BitSetIndex<>(new EnumMap<Status, BitSet>(Status.class));
+    private static final BitSetIndex<TaskType> tasksByType = new BitSetIndex<>(new EnumMap<TaskType, BitSet>(TaskType.class));
+    private static final BitSetIndex<String> tasksByAssignee = new BitSetIndex<>();
     
     private int id;
     private TaskType taskType;    
     private String title;
-    private SetOfUsers assignedTo = new SetOfUsers();
-    private SetOfAssets assets = new SetOfAssets();
+    private LazyAssociation<SetOfUsers> assignedTo = LazyAssociation.users(new ArrayList<Object>());
+    private LazyAssociation<SetOfAssets> assets = LazyAssociation.assets(new ArrayList<Object>());
     private Status status;
     private Priority priority;
-    private Report report;
+    private LazyAssociation<Report> report = LazyAssociation.report(0);
     
     public enum TaskType {
         Asset_Retrieval,
@@ -54,7 +64,7 @@ public class Task extends Model {
         this.title = "";
         this.status = Status.Created;
         this.priority = Priority.Normal;
-        this.report = new Report(); // An empty report is always created
+        this.report.set(new Report()); // An empty report is always created
     }
 
     
@@ -88,27 +98,27 @@ public class Task extends Model {
     }
 
     public SetOfUsers getAssignedTo() {
-        return assignedTo;
+        return assignedTo.get();
     }
 
     public void setAssignedTo(SetOfUsers assignedTo) {
-        this.assignedTo = assignedTo;
+        this.assignedTo.set(assignedTo);
     }
     
     public void addAssignedTo(User user) {
-        this.assignedTo.add(user);
+        this.assignedTo.get().add(user);
     }
     
     public SetOfAssets getAssets(){
-        return assets;
+        return assets.get();
     }
     
     public void setAssets(SetOfAssets assets){
-        this.assets = assets;
+        this.assets.set(assets);
     }
     
     public void addAsset(Asset asset) {
-        this.assets.add(asset);
+        this.assets.get().add(asset);
     }
 
     public Priority getPriority() {
@@ -128,58 +138,290 @@ public class Task extends Model {
     }
 
     public Report getReport() {
-        return report;
+        return report.get();
     }
 
     public void setReport(Report report) {
-        this.report = report;
+        this.report.set(report);
     }
     
-    public static void clearAndNullifyAll() {
-        if (allTasks != null) {
-            allTasks.clear();
-            allTasks = null;
+    public static synchronized void clearAndNullifyAll() {
+        tasksById.clear();
+        tasksByStatus.clear();
+        tasksByType.clear();
+        tasksByAssignee.clear();
+        // The list is dropped rather than cleared, as other threads may still be iterating over it
+        allTasks = null;
+    }
+    
+    /**
+     * Puts a saved Task into the cache (if it has been loaded), replacing any other
+     * instance held for the same ID.
+     * 
+     * @param task The Task which has been saved.
+     */
+    private static void updateCache(Task task) {
+        updateCache(Collections.singletonList(task));
+    }
+    
+    /**
+     * Puts saved Tasks into the cache and indexes (if they have been loaded),
+     * replacing any other instances held for the same IDs. The list is only copied
+     * once, however many Tasks there are. The indexes are only updated once the
+     * Tasks' unit of work has been committed.
+     * 
+     * @param tasks The Tasks which have been saved.
+     */
+    private static synchronized void updateCache(List<Task> tasks) {
+        if (allTasks == null) {
+            return;
+        }
+        SetOfTasks updated = null;
+        for (Task task : tasks) {
+            Task cached = tasksById.get(task.getId());
+            if (cached != task) {
+                // Replace the list rather than changing it, as other threads may be iterating over it
+                if (updated == null) {
+                    updated = new SetOfTasks();
+                    updated.addAll(allTasks);
+                }
+                if (cached == null) {
+                    updated.add(task);
+                }
+                else {
+                    updated.set(updated.indexOf(cached), task);
+                }
+                tasksById.put(task.getId(), task);
+            }
+        }
+        if (updated != null) {
+            allTasks = updated;
         }
+        indexOnCommit(tasks);
     }
     
-    @Override
-    public boolean save() {
-        this.report.setTitle("Report for Task " + Task.getNextAvailableID());
-        boolean success = this.report.save();
+    /**
+     * Adds a Task to (or updates it in) the status, type and assignee indexes.
+     * 
+     * @param task The Task, as loaded from the database.
+     */
+    private static void index(Task task) {
+        new IndexKeys(task).index();
+    }
+    
+    /**
+     * Files saved Tasks in the status, type and assignee indexes once the unit of
+     * work saving them has been committed, under the values they were saved with.
+     * Until then (and for good, if it is rolled back) each stays filed under the
+     * values last committed, so edits which have not been committed never change
+     * which Tasks the indexes return.
+     * 
+     * @param tasks The Tasks which have been saved.
+     */
+    private static void indexOnCommit(List<Task> tasks) {
+        final ArrayList<IndexKeys> saved = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            saved.add(new IndexKeys(task));
+        }
+        
+        // Joins the unit of work the Tasks are being saved in
+        UnitOfWork work = UnitOfWork.begin();
+        work.onCommit(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (Task.class) {
+                    for (IndexKeys keys : saved) {
+                        // Tasks which have been dropped from the cache since are indexed when it is reloaded
+                        if (allTasks != null && tasksById.get(keys.task.getId()) == keys.task) {
+                            keys.index();
+                        }
+                    }
+                }
+            }
+        });
+        work.end(true);
+    }
+    
+    /**
+     * The values a Task is filed under in the status, type and assignee indexes, as
+     * they were when it was loaded or saved.
+     */
+    private static class IndexKeys {
+        private final Task task;
+        private final Status status;
+        private final TaskType taskType;
+        private final ArrayList<String> usernames = new ArrayList<>();
+        
+        IndexKeys(Task task) {
+            this.task = task;
+            this.status = task.getStatus();
+            this.taskType = task.getTaskType();
+            for (Object username : task.assignedTo.getKeys()) {
+                usernames.add((String)username);
+            }
+        }
+        
+        void index() {
+            tasksByStatus.put(task.getId(), status);
+            tasksByType.put(task.getId(), taskType);
+            tasksByAssignee.put(task.getId(), usernames);
+        }
+    }
+    
+    /**
+     * Gets the Tasks with the given IDs, in ID order.
+     * 
+     * @param ids The IDs, typically from one or more of the indexes.
+     * @return The Tasks.
+     */
+    private static SetOfTasks getTasksByIds(BitSet ids) {
+        SetOfTasks tasks = new SetOfTasks();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            tasks.add(tasksById.get(id));
+        }
+        return tasks;
+    }
+    
+    /**
+     * Saves several Tasks in a single transaction. The new Tasks are given a run of
+     * IDs up front, and they, their Reports and their links to Users and Assets are
+     * each inserted as a single batch, so this is much quicker than saving them one
+     * at a time (e.g. when importing). Observers are told about all of them at once.
+     * 
+     * Any Assets the Tasks link to must already have been saved; to create the Assets
+     * in the same transaction, save them both inside one UnitOfWork.
+     * 
+     * @param tasks The Tasks to save.
+     * @return true if every Task was saved, false if an error occurred (in which
+     * case none of them were).
+     * @see Model#saveAll(List)
+     * @see Asset#saveAll(SetOfAssets)
+     */
+    public static boolean saveAll(SetOfTasks tasks) {
+        return saveAll(tasks, new BatchWriter<Task>() {
+            @Override
+            public boolean saveToDatabase(List<Task> tasks) {
+                SetOfTasks created = new SetOfTasks();
+                for (Task task : tasks) {
+                    if (task.id == 0) {
+                        created.add(task);
+                    }
+                    else if (!task.saveToDatabase()) {
+                        return false;
+                    }
+                }
+                return insertAll(created);
+            }
+        });
+    }
+    
+    /**
+     * Inserts new Tasks, with their Reports and links, as a single batch.
+     */
+    private static boolean insertAll(SetOfTasks tasks) {
+        if (tasks.isEmpty()) {
+            return true;
+        }
+        int firstId = IdAllocator.getInstance().nextIds("TASKS", tasks.size());
+        if (firstId == 0) {
+            return false;
+        }
+        
+        // The IDs are needed up front to title the Reports, which must be saved first
+        SetOfReports reports = new SetOfReports();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            task.id = firstId + i;
+            Report taskReport = task.report.get();
+            taskReport.setTitle("Report for Task " + task.id);
+            reports.add(taskReport);
+        }
+        recordNewIds(tasks);
+        if (!Report.saveAll(reports)) {
+            return false;
+        }
+        
+        ArrayList<HashMap<String, Object>> rows = new ArrayList<>();
+        ArrayList<HashMap<String, Object>> links = new ArrayList<>();
+        for (Task task : tasks) {
+            rows.add(task.getAttributesAndValues(true));
+            links.addAll(task.getInnerAttributesAndValues());
+        }
         
         DatabaseConnector dbConn = new DatabaseConnector();
+        boolean success = dbConn.insertAllQuery(rows);
+        success &= dbConn.insertLinksQuery(links, "TASK");
+        dbConn.dispose();
+        
+        if (success) {
+            updateCache(tasks);
+            for (Task task : tasks) {
+                recordChange(ModelChange.EntityType.Task, task.id, ModelChange.Kind.Created);
+            }
+        }
+        
+        return success;
+    }
+    
+    @Override
+    protected boolean saveToDatabase() {
+        boolean success = true;
+        boolean isNew = (this.id == 0);
+        
+        // The ID is needed up front to title the Report, which must be saved first
+        if (isNew) {
+            this.id = IdAllocator.getInstance().nextId("TASKS");
+            if (this.id == 0) {
+                return false;
+            }
+            recordNewIds(Collections.singletonList(this));
+        }
+        // A Report which has not been resolved cannot have changed
+        if (isNew || this.report.isLoaded()) {
+            Report taskReport = this.report.get();
+            taskReport.setTitle("Report for Task " + this.id);
+            success &= taskReport.save();
+        }
         
-        if (this.id == 0) {
-            this.id = Task.getNextAvailableID();
-            success &= dbConn.insertQuery(getAttributesAndValues(false));
+        if (!isNew && !hasChanges()) {
+            // Nothing has changed since the Task was loaded or last saved
+            return success;
+        }
+        
+        DatabaseConnector dbConn = new DatabaseConnector();
+        ModelChange.Kind kind;
+
+        if (isNew) {
+            success &= dbConn.insertQuery(getAttributesAndValues(true));
+            kind = ModelChange.Kind.Created;
         }
         else {
-            success &= dbConn.updateQuery(getAttributesAndValues(true));
+            success &= dbConn.updateQuery(getChangedAttributesAndValues());
+            kind = ModelChange.Kind.Updated;
         }
         
-        success &= dbConn.deleteAndInsertQuery(getInnerAttributesAndValues(), "TASK");
+        success &= dbConn.updateLinksQuery(getChangedInnerAttributesAndValues(), "TASK");
+        dbConn.dispose();
         
         if (success) {
-            /*
-            Craig - Database content has changed so we tell the Subject to
-            update its Observers
-            */
-            AppObservable.getInstance().notifyObserversToRefresh();
+            // Keep the cache in step so that it need not be reloaded once this unit of work commits
+            updateCache(this);
+            recordChange(ModelChange.EntityType.Task, this.id, kind);
         }
         
         return success;
     }
 
     @Override
-    protected HashMap<String, String> getAttributesAndValues(final boolean includeId) {
-        return new HashMap<String, String>() {{
+    protected HashMap<String, Object> getAttributesAndValues(final boolean includeId) {
+        return new HashMap<String, Object>() {{
             put("TABLENAME", "TASKS");
-            if (includeId) put("ID", "" + getId());
-            put("TITLE", wrapInSingleQuotes(getTitle()));
-            put("TASKTYPE", wrapInSingleQuotes(getTaskType().toString()));
-            put("STATUS", wrapInSingleQuotes(getStatus().toString()));
-            put("PRIORITY", wrapInSingleQuotes(getPriority().toString()));
-            put("REPORTID", "" + getReport().getId());
+            if (includeId) put("ID", getId());
+            put("TITLE", getTitle());
+            put("TASKTYPE", getTaskType().toString());
+            put("STATUS", getStatus().toString());
+            put("PRIORITY", getPriority().toString());
+            put("REPORTID", report.getKeys().get(0));
         }};
     }
 
@@ -188,21 +430,13 @@ public class Task extends Model {
         ArrayList<HashMap<String, Object>> attrVals = new ArrayList();
         attrVals.add(new HashMap<String, Object>() {{
             put("TABLENAME", "TASKASSIGNEDTO");
-            put("TASKID", "" + getId());            
-            ArrayList<String> usernames = new ArrayList();
-            for (User user : getAssignedTo()) {
-                usernames.add(wrapInSingleQuotes(user.getUsername()));
-            }
-            put("USERNAME", usernames);
+            put("TASKID", getId());            
+            put("USERNAME", assignedTo.getKeys());
         }});
         attrVals.add(new HashMap<String, Object>() {{
             put("TABLENAME", "TASKASSETS");
-            put("TASKID", "" + getId());            
-            ArrayList<String> assetIds = new ArrayList();
-            for (Asset asset : getAssets()) {
-                assetIds.add("" + asset.getId());
-            }
-            put("USERNAME", assetIds);
+            put("TASKID", getId());            
+            put("ASSETID", assets.getKeys());
         }});
         return attrVals;
     }
@@ -212,85 +446,105 @@ public class Task extends Model {
         return "(ID: " + getId() + ") " + getTaskType() + " Task - " + getTitle();
     }
     
-    public static SetOfTasks getAllTasks() {
+    public static synchronized SetOfTasks getAllTasks() {
         if (allTasks == null) {
             populateTasks();
         }
         return allTasks;
     }
     
-    public static Task getTaskByID(int id) {
-        for (Task task : getAllTasks()) {
-            if (task.getId() == id) {
-                return task;
-            }
-        }
-        return null;
+    public static synchronized Task getTaskByID(int id) {
+        getAllTasks();
+        return tasksById.get(id);
     }
     
-    public static SetOfTasks getTasksForUser(User user) {
-        SetOfTasks tasks = new SetOfTasks();
-        for (Task task : getAllTasks()) {
-            if (task.getAssignedTo().contains(user) || user.getRole() == Role.ProjectManager || user.getRole() == Role.ProjectCoordinator) {
-                tasks.add(task);
-            }
+    public static synchronized SetOfTasks getTasksForUser(User user) {
+        if (user.getRole() == Role.ProjectManager || user.getRole() == Role.ProjectCoordinator) {
+            SetOfTasks tasks = new SetOfTasks();
+            tasks.addAll(getAllTasks());
+            return tasks;
         }
-        return tasks;
+        getAllTasks();
+        return getTasksByIds(tasksByAssignee.get(user.getUsername()));
     }
     
-    public static SetOfTasks getTasksByStatus(Status status) {
-        SetOfTasks tasks = new SetOfTasks();
-        for (Task task : getAllTasks()) {
-            if (task.getStatus() == status) {
-                tasks.add(task);
-            }
-        }
-        return tasks;
+    public static synchronized SetOfTasks getTasksByStatus(Status status) {
+        getAllTasks();
+        return getTasksByIds(tasksByStatus.get(status));
     }
     
-    private static int getNextAvailableID() {
-        int greatestId = 0;
-        for (Task task : getAllTasks()) {
-            greatestId = Math.max(greatestId, task.getId());
+    public static synchronized SetOfTasks getTasksByType(TaskType taskType) {
+        getAllTasks();
+        return getTasksByIds(tasksByType.get(taskType));
+    }
+    
+    /**
+     * Gets those of the given Tasks which have the given status, by looking each
+     * one up in the status index.
+     * 
+     * @param status The status to find.
+     * @param tasks The Tasks to search (e.g. a Project's Tasks).
+     * @return The matching Tasks, in the order they were given.
+     */
+    public static synchronized SetOfTasks getTasksByStatus(Status status, SetOfTasks tasks) {
+        getAllTasks();
+        BitSet ids = tasksByStatus.get(status);
+        SetOfTasks matching = new SetOfTasks();
+        for (Task task : tasks) {
+            if (task.getId() > 0 && ids.get(task.getId())) {
+                matching.add(tasksById.get(task.getId()));
+                // So a Task which is given twice is only returned once
+                ids.clear(task.getId());
+            }
         }
-        return greatestId + 1;
+        return matching;
     }
     
-    private static void populateTasks() {
+    /**
+     * Loads all Tasks and their links. Each link table is read once in full and
+     * its keys are handed to the Tasks in memory, so the number of queries does not
+     * grow with the number of Tasks. The linked Users, Assets and Reports are only
+     * loaded once a Task's links are first used.
+     */
+    private static synchronized void populateTasks() {
+        allTasks = new SetOfTasks();
+        tasksById.clear();
+        tasksByStatus.clear();
+        tasksByType.clear();
+        tasksByAssignee.clear();
+        DatabaseConnector dbConn = new DatabaseConnector();
+        
         try {
-            allTasks = new SetOfTasks();
-            DatabaseConnector dbConn = new DatabaseConnector();
+            HashMap<Integer, ArrayList<Object>> taskAssignedTo = dbConn.selectLinksQuery("TASKASSIGNEDTO", "TASKID", "USERNAME");
+            HashMap<Integer, ArrayList<Object>> taskAssets = dbConn.selectLinksQuery("TASKASSETS", "TASKID", "ASSETID");
             ResultSet tasks = dbConn.selectQuery("SELECT * FROM TASKS");
             
             while (tasks.next()) {
                 Task task = new Task(tasks.getInt("ID"), TaskType.valueOf(tasks.getString("TASKTYPE")));
                 task.setPriority(Priority.valueOf(tasks.getString("PRIORITY")));
-                task.setReport(Report.getReportByID(tasks.getInt("REPORTID")));
+                task.report = LazyAssociation.report(tasks.getInt("REPORTID"));
                 task.setStatus(Status.valueOf(tasks.getString("STATUS")));
                 task.setTaskType(TaskType.valueOf(tasks.getString("TASKTYPE")));
                 task.setTitle(tasks.getString("TITLE"));
                 
-                DatabaseConnector dbConn2 = new DatabaseConnector();
-                ResultSet taskAssignedTo = dbConn2.selectQuery("SELECT * FROM TASKASSIGNEDTO WHERE TASKID = " + task.getId());
-                
-                while (taskAssignedTo.next()) {
-                    task.addAssignedTo(User.getUserByUsername(taskAssignedTo.getString("USERNAME")));
+                // The links are only resolved to models when first used
+                if (taskAssignedTo.containsKey(task.getId())) {
+                    task.assignedTo = LazyAssociation.users(taskAssignedTo.get(task.getId()));
                 }
-                dbConn2.dispose();
-                
-                DatabaseConnector dbConn3 = new DatabaseConnector();
-                ResultSet taskAssets = dbConn3.selectQuery("SELECT * FROM TASKASSETS WHERE TASKID = " + task.getId());
                 
-                while (taskAssets.next()) {
-                    task.addAsset(Asset.getAssetByID(taskAssets.getInt("ASSETID")));
+                if (taskAssets.containsKey(task.getId())) {
+                    task.assets = LazyAssociation.assets(taskAssets.get(task.getId()));
                 }
-                dbConn3.dispose();
                 
+                task.markClean();
                 allTasks.add(task);
-            }                    
-            dbConn.dispose();
+                tasksById.put(task.getId(), task);
+                index(task);
+            }
         } catch (SQLException ex) {
             Logger.getLogger(Task.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            dbConn.dispose();
         }
     }
 }
\ No newline at end of file
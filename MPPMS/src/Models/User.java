@@ -10,6 +10,7 @@ import java.util.logging.Logger;
 
 public class User extends Model {
     private static SetOfUsers allUsers = null;
+    private static final HashMap<String, User> usersByUsername = new HashMap<>();
     
     private final String username;
     private final String password;
@@ -56,20 +57,24 @@ public class User extends Model {
         return String.format("%s %s", this.forename, this.surname);
     }
     
-    public static void clearAndNullifyAll() {
-        if (allUsers != null) {
-            allUsers.clear();
-            allUsers = null;
-        }
+    public static synchronized void clearAndNullifyAll() {
+        usersByUsername.clear();
+        // The list is dropped rather than cleared, as other threads may still be iterating over it
+        allUsers = null;
+    }
+
+    @Override
+    protected boolean saveToDatabase() {
+        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
     @Override
-    public boolean save() {
+    protected void setId(int id) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
     @Override
-    protected HashMap<String, String> getAttributesAndValues(boolean includeId) {
+    protected HashMap<String, Object> getAttributesAndValues(boolean includeId) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
 
@@ -83,23 +88,19 @@ public class User extends Model {
         return this.getName() + " (" + this.getUsername() + ")";
     }
     
-    public static SetOfUsers getAllUsers() {
+    public static synchronized SetOfUsers getAllUsers() {
         if (allUsers == null) {
             populateUsers();
         }
         return allUsers;
     }
     
-    public static User getUserByUsername(String username) {
-        for (User user : getAllUsers()) {
-            if (user.getUsername().equals(username)) {
-                return user;
-            }
-        }
-        return null;
+    public static synchronized User getUserByUsername(String username) {
+        getAllUsers();
+        return usersByUsername.get(username);
     }
     
-    public static SetOfUsers getUsersByRole(Role role) {
+    public static synchronized SetOfUsers getUsersByRole(Role role) {
         SetOfUsers users = new SetOfUsers();
         for (User user : getAllUsers()) {
             if (user.getRole() == role) {
@@ -109,7 +110,7 @@ public class User extends Model {
         return users;
     }
     
-    public static boolean authenticate(String username, String password) {
+    public static synchronized boolean authenticate(String username, String password) {
         for (User user : getAllUsers()) {
             if (user.getUsername().equals(username) && user.getPassword().equals(password)) {
                 return true;
@@ -118,10 +119,11 @@ public class User extends Model {
         return false;
     }
     
-    private static void populateUsers() {
+    private static synchronized void populateUsers() {
         try 
         {
             allUsers = new SetOfUsers();
+            usersByUsername.clear();
             DatabaseConnector dbConn = new DatabaseConnector();
             ResultSet users = dbConn.selectQuery("SELECT * FROM USERS");
             
@@ -133,6 +135,7 @@ public class User extends Model {
                                     users.getString("Surname"),
                                     users.getString("Name"));
                 allUsers.add(user);
+                usersByUsername.put(user.getUsername(), user);
             }
             dbConn.dispose();
         }
@@ -19,6 +19,11 @@ public class AssetDetailView extends javax.swing.JPanel {
         lengthText.setEnabled(editMode);
     }
     
+    public void setSaving(boolean saving) {
+        saveButton.setEnabled(!saving);
+        discardButton.setEnabled(!saving);
+    }
+    
     public void showPreviewButton(boolean vis) {
         btnPreview.setVisible(vis);
     }
@@ -18,6 +18,11 @@ public class ComponentDetailView extends javax.swing.JPanel {
         assetChoiceButton.setEnabled(editMode);
     }
     
+    public void setSaving(boolean saving) {
+        saveButton.setEnabled(!saving);
+        discardButton.setEnabled(!saving);
+    }
+    
     public void setCanViewAsset(boolean canEdit) {
         viewAssetButton.setEnabled(canEdit);
     }
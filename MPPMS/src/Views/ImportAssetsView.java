@@ -20,6 +20,26 @@ public class ImportAssetsView extends javax.swing.JPanel {
     public void addFileChooserActionListener(ActionListener listener) {
         this.assetsFileChooser.addActionListener(listener);
     }
+    
+    public void addCancelImportButtonActionListener(ActionListener listener) {
+        this.cancelImportButton.addActionListener(listener);
+    }
+    
+    /**
+     * Switches the view between choosing files and showing an import's progress.
+     * 
+     * @param running true while an import is running.
+     */
+    public void setImportRunning(boolean running) {
+        this.assetsFileChooser.setEnabled(!running);
+        this.createTasksCheckBox.setEnabled(!running);
+        this.cancelImportButton.setEnabled(running);
+    }
+    
+    public void setImportProgress(int percent, String status) {
+        this.importProgressBar.setValue(percent);
+        this.importStatusLabel.setText(status);
+    }
 
     /**
      * This method is called from within the constructor to initialize the form.
@@ -32,11 +52,21 @@ public class ImportAssetsView extends javax.swing.JPanel {
 
         assetsFileChooser = new javax.swing.JFileChooser();
         createTasksCheckBox = new javax.swing.JCheckBox();
+        importProgressBar = new javax.swing.JProgressBar();
+        cancelImportButton = new javax.swing.JButton();
+        importStatusLabel = new javax.swing.JLabel();
 
         assetsFileChooser.setMultiSelectionEnabled(true);
 
         createTasksCheckBox.setText("Create Inbound QA Tasks for Imported Assets");
 
+        importProgressBar.setStringPainted(true);
+
+        cancelImportButton.setText("Cancel Import");
+        cancelImportButton.setEnabled(false);
+
+        importStatusLabel.setText(" ");
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -46,7 +76,15 @@ public class ImportAssetsView extends javax.swing.JPanel {
                     .addComponent(assetsFileChooser, javax.swing.GroupLayout.PREFERRED_SIZE, 359, javax.swing.GroupLayout.PREFERRED_SIZE)
                     .addGroup(layout.createSequentialGroup()
                         .addContainerGap()
-                        .addComponent(createTasksCheckBox)))
+                        .addComponent(createTasksCheckBox))
+                    .addGroup(layout.createSequentialGroup()
+                        .addContainerGap()
+                        .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+                            .addComponent(importStatusLabel, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(importProgressBar, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(cancelImportButton)))))
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
         );
         layout.setVerticalGroup(
@@ -55,13 +93,23 @@ public class ImportAssetsView extends javax.swing.JPanel {
                 .addContainerGap()
                 .addComponent(createTasksCheckBox)
                 .addGap(11, 11, 11)
-                .addComponent(assetsFileChooser, javax.swing.GroupLayout.PREFERRED_SIZE, 334, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addComponent(assetsFileChooser, javax.swing.GroupLayout.PREFERRED_SIZE, 334, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.CENTER)
+                    .addComponent(importProgressBar, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(cancelImportButton))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(importStatusLabel)
+                .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
         );
     }// </editor-fold>//GEN-END:initComponents
 
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JFileChooser assetsFileChooser;
+    private javax.swing.JButton cancelImportButton;
     private javax.swing.JCheckBox createTasksCheckBox;
+    private javax.swing.JProgressBar importProgressBar;
+    private javax.swing.JLabel importStatusLabel;
     // End of variables declaration//GEN-END:variables
 }
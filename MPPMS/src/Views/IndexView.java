@@ -8,23 +8,44 @@ import Models.SetOfComponents;
 import Models.SetOfProjects;
 import Models.Task;
 import Models.SetOfTasks;
+import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.FilterList;
 import ca.odell.glazedlists.GlazedLists;
+import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.TextFilterator;
 import ca.odell.glazedlists.gui.TableFormat;
-import ca.odell.glazedlists.swing.DefaultEventTableModel;
+import ca.odell.glazedlists.matchers.MatcherEditor;
+import ca.odell.glazedlists.matchers.ThreadedMatcherEditor;
+import ca.odell.glazedlists.swing.AdvancedTableModel;
+import ca.odell.glazedlists.swing.GlazedListsSwing;
+import ca.odell.glazedlists.swing.TableComparatorChooser;
+import ca.odell.glazedlists.swing.TextComponentMatcherEditor;
 import java.awt.event.ActionListener;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 import javax.swing.JLabel;
 import javax.swing.ImageIcon;
 import javax.swing.JPanel;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.table.DefaultTableCellRenderer;
 
 public class IndexView extends javax.swing.JFrame {
 
+    private final EventList<Project> projectsEventList = new BasicEventList<>();
+    private final EventList<Task> tasksEventList = new BasicEventList<>();
+    private final EventList<Component> componentsEventList = new BasicEventList<>();
+    private final EventList<Asset> assetsEventList = new BasicEventList<>();
+
     public IndexView() {
         initComponents();
+        initialiseTables();
         this.setIconImage(new ImageIcon(getClass().getResource("/resources/icon.png")).getImage());
         this.setLocationRelativeTo(null);
     }
@@ -45,55 +66,153 @@ public class IndexView extends javax.swing.JFrame {
         this.contentHierarchyButton.setEnabled(enabled);
     }
     
-    public void setProjectsTableData(SetOfProjects projects) {
+    /**
+     * Gives each table a model backed by a long-lived EventList. The tables keep
+     * these models: later data is applied to the EventLists in place, so that only
+     * the rows which changed are inserted, removed or repainted.
+     * 
+     * Each table shows its EventList filtered by the text typed into the tab's
+     * filter field, then sorted by the column header last clicked. The filter is
+     * applied on a background thread (by the ThreadedMatcherEditor), so typing
+     * stays responsive with many rows; changes reach the table on the EDT.
+     */
+    private void initialiseTables() {
         String[] headers = new String[]{ "Title", "Creation date", "Manager", "Coordinator" };
         String[] properties = new String[]{ "Title", "FormattedCreationDate", "Manager", "Coordinator" };
+        TableFormat<Project> projectsTableFormat = GlazedLists.tableFormat(Project.class, properties, headers);
+        initialiseTable(projectsTable, projectsFilterField, projectsEventList, projectsTableFormat);
         
-        EventList projectsEventList = GlazedLists.eventList(projects);
-        TableFormat projectsTableFormat = GlazedLists.tableFormat(Project.class, properties, headers);
-        DefaultEventTableModel projectsTableModel = new DefaultEventTableModel(projectsEventList, projectsTableFormat);
+        properties = new String[]{ "Title", "Status", "Priority" };
+        TableFormat<Task> tasksTableFormat = GlazedLists.tableFormat(Task.class, properties, properties);
+        initialiseTable(tasksTable, tasksFilterField, tasksEventList, tasksTableFormat);
         
-        this.projectsTable.setModel(projectsTableModel);
+        headers = new String[]{ "ID", "Description", "Asset count" };
+        properties = new String[]{ "Id", "Description", "NumberOfAssets" };
+        TableFormat<Component> componentsTableFormat = GlazedLists.tableFormat(Component.class, properties, headers);
+        initialiseTable(componentsTable, componentsFilterField, componentsEventList, componentsTableFormat);
         
-        alignTableContent(projectsTable, JLabel.LEFT);
+        headers = new String[]{ "ID", "Asset type", "Length" };
+        properties = new String[]{ "Id", "AssetType", "Length" };
+        TableFormat<Asset> assetsTableFormat = GlazedLists.tableFormat(Asset.class, properties, headers);
+        initialiseTable(assetsTable, assetsFilterField, assetsEventList, assetsTableFormat);
     }
     
-    public void setTasksTableData(SetOfTasks tasks) {
-        String[] properties = new String[]{ "Title", "Status", "Priority" };
+    private <E> void initialiseTable(JTable table, JTextField filterField, EventList<E> rows, TableFormat<E> tableFormat) {
+        MatcherEditor<E> textMatcherEditor = new TextComponentMatcherEditor<>(filterField, new TableFormatTextFilterator<>(tableFormat));
+        FilterList<E> filteredRows = new FilterList<>(rows, new ThreadedMatcherEditor<>(textMatcherEditor));
+        SortedList<E> sortedRows = new SortedList<>(filteredRows, null);
         
-        EventList tasksEventList = GlazedLists.eventList(tasks);
-        TableFormat tasksTableFormat = GlazedLists.tableFormat(Task.class, properties, properties);
-        DefaultEventTableModel tasksTableModel = new DefaultEventTableModel(tasksEventList, tasksTableFormat);
+        table.setModel(GlazedListsSwing.eventTableModelWithThreadProxyList(sortedRows, tableFormat));
+        TableComparatorChooser.install(table, sortedRows, TableComparatorChooser.SINGLE_COLUMN);
+        alignTableContent(table, JLabel.LEFT);
+    }
+    
+    /**
+     * Matches the filter text against the values shown in a row's columns, so that
+     * a row can be found by anything visible in it.
+     */
+    private static class TableFormatTextFilterator<E> implements TextFilterator<E> {
+        private final TableFormat<E> tableFormat;
         
-        this.tasksTable.setModel(tasksTableModel);
+        TableFormatTextFilterator(TableFormat<E> tableFormat) {
+            this.tableFormat = tableFormat;
+        }
         
-        alignTableContent(tasksTable, JLabel.LEFT);
+        @Override
+        public void getFilterStrings(List<String> baseList, E element) {
+            for (int i = 0; i < tableFormat.getColumnCount(); i++) {
+                Object value = tableFormat.getColumnValue(element, i);
+                if (value != null) {
+                    baseList.add(value.toString());
+                }
+            }
+        }
+    }
+    
+    public void setProjectsTableData(SetOfProjects projects) {
+        updateRows(projectsEventList, projects, Collections.<Project>emptyList());
+    }
+    
+    public void setTasksTableData(SetOfTasks tasks) {
+        updateRows(tasksEventList, tasks, Collections.<Task>emptyList());
     }
     
     public void setComponentsTableData(SetOfComponents components) {
-        String[] headers = new String[]{ "ID", "Description", "Asset count" };
-        String[] properties = new String[]{ "Id", "Description", "NumberOfAssets" };
-        
-        EventList eventList = GlazedLists.eventList(components);
-        TableFormat tableFormat = GlazedLists.tableFormat(Component.class, properties, headers);
-        DefaultEventTableModel tableModel = new DefaultEventTableModel(eventList, tableFormat);
-        
-        this.componentsTable.setModel(tableModel);
-        
-        alignTableContent(componentsTable, JLabel.LEFT);
+        updateRows(componentsEventList, components, Collections.<Component>emptyList());
     }
     
     public void setAssetsTableData(SetOfAssets assets) {
-        String[] headers = new String[]{ "ID", "Asset type", "Length" };
-        String[] properties = new String[]{ "Id", "AssetType", "Length" };
-        
-        EventList eventList = GlazedLists.eventList(assets);
-        TableFormat tableFormat = GlazedLists.tableFormat(Asset.class, properties, headers);
-        DefaultEventTableModel tableModel = new DefaultEventTableModel(eventList, tableFormat);
-        
-        this.assetsTable.setModel(tableModel);
+        updateRows(assetsEventList, assets, Collections.<Asset>emptyList());
+    }
+    
+    /**
+     * Shows the given Projects, inserting and removing only the rows which differ
+     * and repainting the rows of the changed Projects.
+     * 
+     * @param projects The Projects to show.
+     * @param changed The Projects which have changed.
+     */
+    public void refreshProjectsTableData(SetOfProjects projects, Collection<Project> changed) {
+        updateRows(projectsEventList, projects, changed);
+    }
+    
+    /**
+     * Shows the given Tasks, inserting and removing only the rows which differ
+     * and repainting the rows of the changed Tasks.
+     * 
+     * @param tasks The Tasks to show.
+     * @param changed The Tasks which have changed.
+     */
+    public void refreshTasksTableData(SetOfTasks tasks, Collection<Task> changed) {
+        updateRows(tasksEventList, tasks, changed);
+    }
+    
+    /**
+     * Shows the given Components, inserting and removing only the rows which differ
+     * and repainting the rows of the changed Components.
+     * 
+     * @param components The Components to show.
+     * @param changed The Components which have changed.
+     */
+    public void refreshComponentsTableData(SetOfComponents components, Collection<Component> changed) {
+        updateRows(componentsEventList, components, changed);
+    }
+    
+    /**
+     * Shows the given Assets, inserting and removing only the rows which differ
+     * and repainting the rows of the changed Assets.
+     * 
+     * @param assets The Assets to show.
+     * @param changed The Assets which have changed.
+     */
+    public void refreshAssetsTableData(SetOfAssets assets, Collection<Asset> changed) {
+        updateRows(assetsEventList, assets, changed);
+    }
+    
+    /**
+     * Brings a table's EventList in line with the given models in place. The lists
+     * are diffed, so a model which was added or removed becomes a single row insert
+     * or delete; each changed model still in the list is set again, which repaints
+     * its row. Models are compared by identity, so a model which was reloaded (a new
+     * instance) replaces its row.
+     */
+    private <E> void updateRows(EventList<E> rows, List<E> models, Collection<E> changed) {
+        Set<E> changedModels = Collections.newSetFromMap(new IdentityHashMap<E, Boolean>());
+        changedModels.addAll(changed);
         
-        alignTableContent(assetsTable, JLabel.LEFT);
+        rows.getReadWriteLock().writeLock().lock();
+        try {
+            GlazedLists.replaceAll(rows, models, false);
+            if (!changedModels.isEmpty()) {
+                for (int i = 0; i < rows.size(); i++) {
+                    if (changedModels.contains(rows.get(i))) {
+                        rows.set(i, rows.get(i));
+                    }
+                }
+            }
+        } finally {
+            rows.getReadWriteLock().writeLock().unlock();
+        }
     }
     
     private void alignTableContent(JTable table, int alignment) {
@@ -108,13 +227,13 @@ public class IndexView extends javax.swing.JFrame {
         if (this.projectsTable.getSelectedRow() < 0) {
             return null;
         }
-        return (Project)((DefaultEventTableModel)this.projectsTable.getModel()).getElementAt(this.projectsTable.getSelectedRow());
+        return (Project)((AdvancedTableModel)this.projectsTable.getModel()).getElementAt(this.projectsTable.getSelectedRow());
     }
     
     public void setSelectedProject(Project model) {
         if (model != null) {
             for (int i = 0; i < this.projectsTable.getRowCount(); i++) {
-                Project temp = (Project)((DefaultEventTableModel)this.projectsTable.getModel()).getElementAt(i);
+                Project temp = (Project)((AdvancedTableModel)this.projectsTable.getModel()).getElementAt(i);
                 if (temp.getId() == model.getId()) {
                     this.projectsTable.setRowSelectionInterval(i, i);
                     break;
@@ -131,13 +250,13 @@ public class IndexView extends javax.swing.JFrame {
         if (this.tasksTable.getSelectedRow() < 0) {
             return null;
         }
-        return (Task)((DefaultEventTableModel)this.tasksTable.getModel()).getElementAt(this.tasksTable.getSelectedRow());
+        return (Task)((AdvancedTableModel)this.tasksTable.getModel()).getElementAt(this.tasksTable.getSelectedRow());
     }
     
     public void setSelectedTask(Task model) {
         if (model != null) {
             for (int i = 0; i < this.tasksTable.getRowCount(); i++) {
-                Task temp = (Task)((DefaultEventTableModel)this.tasksTable.getModel()).getElementAt(i);
+                Task temp = (Task)((AdvancedTableModel)this.tasksTable.getModel()).getElementAt(i);
                 if (temp.getId() == model.getId()) {
                     this.tasksTable.setRowSelectionInterval(i, i);
                     break;
@@ -154,13 +273,13 @@ public class IndexView extends javax.swing.JFrame {
         if (this.componentsTable.getSelectedRow() < 0) {
             return null;
         }
-        return (Component)((DefaultEventTableModel)this.componentsTable.getModel()).getElementAt(this.componentsTable.getSelectedRow());
+        return (Component)((AdvancedTableModel)this.componentsTable.getModel()).getElementAt(this.componentsTable.getSelectedRow());
     }
     
     public void setSelectedComponent(Component model) {
         if (model != null) {
             for (int i = 0; i < this.componentsTable.getRowCount(); i++) {
-                Component temp = (Component)((DefaultEventTableModel)this.componentsTable.getModel()).getElementAt(i);
+                Component temp = (Component)((AdvancedTableModel)this.componentsTable.getModel()).getElementAt(i);
                 if (temp.getId() == model.getId()) {
                     this.componentsTable.setRowSelectionInterval(i, i);
                     break;
@@ -177,13 +296,13 @@ public class IndexView extends javax.swing.JFrame {
         if (this.assetsTable.getSelectedRow() < 0) {
             return null;
         }
-        return (Asset)((DefaultEventTableModel)this.assetsTable.getModel()).getElementAt(this.assetsTable.getSelectedRow());
+        return (Asset)((AdvancedTableModel)this.assetsTable.getModel()).getElementAt(this.assetsTable.getSelectedRow());
     }
     
     public void setSelectedAsset(Asset model) {
         if (model != null) {
             for (int i = 0; i < this.assetsTable.getRowCount(); i++) {
-                Asset temp = (Asset)((DefaultEventTableModel)this.assetsTable.getModel()).getElementAt(i);
+                Asset temp = (Asset)((AdvancedTableModel)this.assetsTable.getModel()).getElementAt(i);
                 if (temp.getId() == model.getId()) {
                     this.assetsTable.setRowSelectionInterval(i, i);
                     break;
@@ -289,18 +408,22 @@ public class IndexView extends javax.swing.JFrame {
         projectsTablePanel = new javax.swing.JPanel();
         projectsScrollPane = new javax.swing.JScrollPane();
         projectsTable = new javax.swing.JTable();
+        projectsFilterField = new javax.swing.JTextField();
         newProjectButton = new javax.swing.JButton();
         tasksTablePanel = new javax.swing.JPanel();
         tasksScrollPane = new javax.swing.JScrollPane();
         tasksTable = new javax.swing.JTable();
+        tasksFilterField = new javax.swing.JTextField();
         newTaskButton = new javax.swing.JButton();
         componentsTablePanel = new javax.swing.JPanel();
         componentsScrollPane = new javax.swing.JScrollPane();
         componentsTable = new javax.swing.JTable();
+        componentsFilterField = new javax.swing.JTextField();
         newComponentButton = new javax.swing.JButton();
         assetsTablePanel = new javax.swing.JPanel();
         assetsScrollPane = new javax.swing.JScrollPane();
         assetsTable = new javax.swing.JTable();
+        assetsFilterField = new javax.swing.JTextField();
         newAssetButton = new javax.swing.JButton();
         btnImportAssets = new javax.swing.JButton();
         welcomeLabel = new javax.swing.JLabel();
@@ -355,6 +478,8 @@ public class IndexView extends javax.swing.JFrame {
         projectsTable.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
         projectsScrollPane.setViewportView(projectsTable);
 
+        projectsFilterField.setToolTipText("Type to filter the projects");
+
         newProjectButton.setText("Create New Project");
 
         javax.swing.GroupLayout projectsTablePanelLayout = new javax.swing.GroupLayout(projectsTablePanel);
@@ -365,6 +490,7 @@ public class IndexView extends javax.swing.JFrame {
                 .addContainerGap()
                 .addGroup(projectsTablePanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addComponent(projectsScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 425, Short.MAX_VALUE)
+                    .addComponent(projectsFilterField)
                     .addComponent(newProjectButton, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
                 .addContainerGap())
         );
@@ -373,8 +499,10 @@ public class IndexView extends javax.swing.JFrame {
             .addGroup(projectsTablePanelLayout.createSequentialGroup()
                 .addContainerGap()
                 .addComponent(newProjectButton)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(projectsFilterField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
-                .addComponent(projectsScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 361, Short.MAX_VALUE)
+                .addComponent(projectsScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 335, Short.MAX_VALUE)
                 .addContainerGap())
         );
 
@@ -396,6 +524,8 @@ public class IndexView extends javax.swing.JFrame {
         tasksTable.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
         tasksScrollPane.setViewportView(tasksTable);
 
+        tasksFilterField.setToolTipText("Type to filter the tasks");
+
         newTaskButton.setText("Create New Task");
 
         javax.swing.GroupLayout tasksTablePanelLayout = new javax.swing.GroupLayout(tasksTablePanel);
@@ -406,6 +536,7 @@ public class IndexView extends javax.swing.JFrame {
                 .addContainerGap()
                 .addGroup(tasksTablePanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addComponent(tasksScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 425, Short.MAX_VALUE)
+                    .addComponent(tasksFilterField)
                     .addComponent(newTaskButton, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
                 .addContainerGap())
         );
@@ -414,8 +545,10 @@ public class IndexView extends javax.swing.JFrame {
             .addGroup(tasksTablePanelLayout.createSequentialGroup()
                 .addContainerGap()
                 .addComponent(newTaskButton)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(tasksFilterField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
-                .addComponent(tasksScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 361, Short.MAX_VALUE)
+                .addComponent(tasksScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 335, Short.MAX_VALUE)
                 .addContainerGap())
         );
 
@@ -435,6 +568,8 @@ public class IndexView extends javax.swing.JFrame {
         componentsTable.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
         componentsScrollPane.setViewportView(componentsTable);
 
+        componentsFilterField.setToolTipText("Type to filter the components");
+
         newComponentButton.setText("Create New Component");
 
         javax.swing.GroupLayout componentsTablePanelLayout = new javax.swing.GroupLayout(componentsTablePanel);
@@ -445,6 +580,7 @@ public class IndexView extends javax.swing.JFrame {
                 .addContainerGap()
                 .addGroup(componentsTablePanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addComponent(componentsScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 425, Short.MAX_VALUE)
+                    .addComponent(componentsFilterField)
                     .addComponent(newComponentButton, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
                 .addContainerGap())
         );
@@ -453,8 +589,10 @@ public class IndexView extends javax.swing.JFrame {
             .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, componentsTablePanelLayout.createSequentialGroup()
                 .addContainerGap()
                 .addComponent(newComponentButton)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(componentsFilterField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
-                .addComponent(componentsScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 361, Short.MAX_VALUE)
+                .addComponent(componentsScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 335, Short.MAX_VALUE)
                 .addContainerGap())
         );
 
@@ -474,6 +612,8 @@ public class IndexView extends javax.swing.JFrame {
         assetsTable.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
         assetsScrollPane.setViewportView(assetsTable);
 
+        assetsFilterField.setToolTipText("Type to filter the assets");
+
         newAssetButton.setText("Create New Asset");
 
         btnImportAssets.setText("Import Assets");
@@ -486,6 +626,7 @@ public class IndexView extends javax.swing.JFrame {
                 .addContainerGap()
                 .addGroup(assetsTablePanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
                     .addComponent(assetsScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 425, Short.MAX_VALUE)
+                    .addComponent(assetsFilterField)
                     .addGroup(assetsTablePanelLayout.createSequentialGroup()
                         .addComponent(newAssetButton, javax.swing.GroupLayout.PREFERRED_SIZE, 211, javax.swing.GroupLayout.PREFERRED_SIZE)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
@@ -499,8 +640,10 @@ public class IndexView extends javax.swing.JFrame {
                 .addGroup(assetsTablePanelLayout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(newAssetButton)
                     .addComponent(btnImportAssets))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(assetsFilterField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
-                .addComponent(assetsScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 361, Short.MAX_VALUE)
+                .addComponent(assetsScrollPane, javax.swing.GroupLayout.DEFAULT_SIZE, 335, Short.MAX_VALUE)
                 .addContainerGap())
         );
 
@@ -577,10 +720,12 @@ public class IndexView extends javax.swing.JFrame {
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JMenuItem applicationMenuExit;
+    private javax.swing.JTextField assetsFilterField;
     private javax.swing.JScrollPane assetsScrollPane;
     private javax.swing.JTable assetsTable;
     private javax.swing.JPanel assetsTablePanel;
     private javax.swing.JButton btnImportAssets;
+    private javax.swing.JTextField componentsFilterField;
     private javax.swing.JScrollPane componentsScrollPane;
     private javax.swing.JTable componentsTable;
     private javax.swing.JPanel componentsTablePanel;
@@ -596,10 +741,12 @@ public class IndexView extends javax.swing.JFrame {
     private javax.swing.JButton newTaskButton;
     private javax.swing.JMenuBar projectMenuBar;
     private javax.swing.JSplitPane projectSplitPane;
+    private javax.swing.JTextField projectsFilterField;
     private javax.swing.JScrollPane projectsScrollPane;
     private javax.swing.JTable projectsTable;
     private javax.swing.JPanel projectsTablePanel;
     private javax.swing.JTabbedPane tabbedPaneView;
+    private javax.swing.JTextField tasksFilterField;
     private javax.swing.JScrollPane tasksScrollPane;
     private javax.swing.JTable tasksTable;
     private javax.swing.JPanel tasksTablePanel;
@@ -36,6 +36,11 @@ public class ProjectDetailView extends javax.swing.JPanel {
         componentsChoiceButton.setEnabled(editMode);
     }
     
+    public void setSaving(boolean saving) {
+        saveButton.setEnabled(!saving);
+        discardButton.setEnabled(!saving);
+    }
+    
     public void setCanViewOverview(boolean b) {
         this.overviewButton.setVisible(b);
     }
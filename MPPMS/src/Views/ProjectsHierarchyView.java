@@ -6,8 +6,9 @@ import java.awt.event.ActionListener;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.ImageIcon;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.DefaultMutableTreeNode;
-import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeModel;
 import javax.swing.tree.TreeSelectionModel;
 
 /**
@@ -41,18 +42,18 @@ public class ProjectsHierarchyView extends javax.swing.JFrame {
         return (Component)comboAddToComponents.getSelectedItem();
     }
     
-    public void setTreeModel(DefaultTreeModel model) {
+    public void setTreeModel(TreeModel model) {
         projectsTree.setModel(model);
-        // Expands all of the tree's nodes
-        for (int i = 0; i < projectsTree.getRowCount(); i++) {
-            projectsTree.expandRow(i);
-        }
     }
     
     public void addProjectsTreeSelectionListener(TreeSelectionListener listener){
         projectsTree.addTreeSelectionListener(listener);
     }
     
+    public void addProjectsTreeWillExpandListener(TreeWillExpandListener listener){
+        projectsTree.addTreeWillExpandListener(listener);
+    }
+    
     public DefaultMutableTreeNode  getSelectedTreeNode() {
         return (DefaultMutableTreeNode) projectsTree.getLastSelectedPathComponent();
     }
@@ -76,6 +76,11 @@ public class ReportDetailView extends javax.swing.JFrame {
         this.contentText.setEnabled(edit);
     }
     
+    public void setSaving(boolean saving) {
+        this.saveButton.setEnabled(!saving);
+        this.discardButton.setEnabled(!saving);
+    }
+    
      public void addEditButtonActionListener(ActionListener listener) {
         this.editButton.addActionListener(listener);
     }
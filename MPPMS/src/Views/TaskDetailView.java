@@ -26,6 +26,11 @@ public class TaskDetailView extends javax.swing.JPanel {
         assetChoiceButton.setEnabled(editMode);
     }
     
+    public void setSaving(boolean saving) {
+        saveButton.setEnabled(!saving);
+        discardButton.setEnabled(!saving);
+    }
+    
     public void setCanViewAsset(boolean canEdit) {
         assetViewButton.setEnabled(canEdit);
     }
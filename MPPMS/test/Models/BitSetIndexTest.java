@@ -0,0 +1,84 @@
+package Models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kirsty
+ */
+public class BitSetIndexTest {
+    private BitSetIndex<String> index;
+
+    public BitSetIndexTest() {
+    }
+
+    @Before
+    public void setUp() {
+        index = new BitSetIndex();
+    }
+
+    /**
+     * Test of put and get methods, of class BitSetIndex.
+     */
+    @Test
+    public void testPutAndGet() {
+        System.out.println("putAndGet");
+
+        index.put(1, Arrays.asList("alice", "bob"));
+        index.put(2, "bob");
+
+        assertEquals(1, index.get("alice").cardinality());
+        assertTrue(index.get("bob").get(1));
+        assertTrue(index.get("bob").get(2));
+        assertTrue(index.get("carol").isEmpty());
+    }
+
+    /**
+     * Test that putting a model again replaces its old keys.
+     */
+    @Test
+    public void testPutReplacesKeys() {
+        System.out.println("putReplacesKeys");
+
+        index.put(1, "Created");
+        index.put(1, "Completed");
+
+        assertTrue(index.get("Created").isEmpty());
+        assertTrue(index.get("Completed").get(1));
+    }
+
+    /**
+     * Test that the results of get can be intersected without changing the index.
+     */
+    @Test
+    public void testIntersection() {
+        System.out.println("intersection");
+
+        index.put(1, Arrays.asList("Created", "bob"));
+        index.put(2, Arrays.asList("Completed", "bob"));
+
+        BitSet ids = index.get("bob");
+        ids.and(index.get("Completed"));
+
+        assertEquals(1, ids.cardinality());
+        assertTrue(ids.get(2));
+        assertEquals(2, index.get("bob").cardinality());
+    }
+
+    /**
+     * Test of remove method, of class BitSetIndex.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+
+        index.put(3, "bob");
+        index.remove(3);
+
+        assertTrue(index.get("bob").isEmpty());
+    }
+}
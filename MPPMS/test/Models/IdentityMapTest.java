@@ -0,0 +1,76 @@
+package Models;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kirsty
+ */
+public class IdentityMapTest {
+    private IdentityMap<String> map;
+
+    public IdentityMapTest() {
+    }
+
+    @Before
+    public void setUp() {
+        map = new IdentityMap();
+    }
+
+    /**
+     * Test of put and get methods, of class IdentityMap.
+     */
+    @Test
+    public void testPutAndGet() {
+        System.out.println("putAndGet");
+
+        for (int id = 1; id <= 1000; id++) {
+            map.put(id, "Model " + id);
+        }
+
+        assertEquals(1000, map.size());
+        assertEquals("Model 1", map.get(1));
+        assertEquals("Model 1000", map.get(1000));
+        assertNull(map.get(1001));
+        assertNull(map.get(0));
+    }
+
+    /**
+     * Test of remove method, of class IdentityMap.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+
+        for (int id = 1; id <= 100; id++) {
+            map.put(id, "Model " + id);
+        }
+
+        assertEquals("Model 50", map.remove(50));
+        assertNull(map.get(50));
+        assertEquals(99, map.size());
+
+        // Entries which probed past the removed slot must still be found
+        for (int id = 1; id <= 100; id++) {
+            if (id != 50) {
+                assertEquals("Model " + id, map.get(id));
+            }
+        }
+    }
+
+    /**
+     * Test of clear method, of class IdentityMap.
+     */
+    @Test
+    public void testClear() {
+        System.out.println("clear");
+
+        map.put(7, "Model 7");
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsId(7));
+    }
+}
@@ -0,0 +1,59 @@
+package Models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Kirsty
+ */
+public class LazyAssociationTest {
+
+    public LazyAssociationTest() {
+    }
+
+    /**
+     * Test that the keys can be read without resolving the association.
+     */
+    @Test
+    public void testGetKeysDoesNotLoad() {
+        System.out.println("getKeysDoesNotLoad");
+
+        LazyAssociation<SetOfTasks> tasks = LazyAssociation.tasks(Arrays.<Object>asList(3L, 1L, 2L));
+
+        assertEquals(Arrays.<Object>asList(3, 1, 2), tasks.getKeys());
+        assertFalse(tasks.isLoaded());
+    }
+
+    /**
+     * Test that the keys follow the linked models once set.
+     */
+    @Test
+    public void testSet() {
+        System.out.println("set");
+
+        LazyAssociation<SetOfUsers> team = LazyAssociation.users(Arrays.<Object>asList("kirsty"));
+        SetOfUsers users = new SetOfUsers();
+        users.add(new User(User.Role.QCTeamMember, "ryan", "password", "Ryan", "Kendall", ""));
+        team.set(users);
+
+        assertTrue(team.isLoaded());
+        assertSame(users, team.get());
+        assertEquals(Arrays.<Object>asList("ryan"), team.getKeys());
+    }
+
+    /**
+     * Test that an association without keys resolves to an empty set.
+     */
+    @Test
+    public void testEmpty() {
+        System.out.println("empty");
+
+        LazyAssociation<SetOfAssets> assets = LazyAssociation.assets(new ArrayList<Object>());
+
+        assertTrue(assets.get().isEmpty());
+        assertTrue(assets.getKeys().isEmpty());
+    }
+}
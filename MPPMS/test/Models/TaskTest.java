@@ -3,6 +3,7 @@ package Models;
 import Models.Task.Priority;
 import Models.Task.Status;
 import Models.Task.TaskType;
+import java.util.Collections;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -298,4 +299,24 @@ public class TaskTest {
         assertTrue(tasks.contains(task));
     }
     
+    /**
+     * Test of getTasksByStatus method with a set of tasks, of class Task.
+     */
+    @Test
+    public void testGetTasksByStatusKeepsOrder() {
+        System.out.println("getTasksByStatus(status, tasks)");
+        
+        Status test = Task.Status.Assigned;
+        SetOfTasks expected = Task.getTasksByStatus(test);
+        Collections.reverse(expected);
+        
+        SetOfTasks given = new SetOfTasks();
+        for (Task other : Task.getAllTasks()) {
+            given.add(0, other);
+        }
+        
+        SetOfTasks tasks = Task.getTasksByStatus(test, given);
+        assertEquals(expected, tasks);
+    }
+    
 }